@@ -0,0 +1,64 @@
+package sj.sj_troubleshooting.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.KeyPair;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// token issue and verification per jwt.algorithm; cacheSize=0 forces a full signature verification on every call
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TokenManagerBenchmark {
+
+    @Param({"RS256", "ES256", "EdDSA"})
+    public String algorithm;
+
+    @Param({"0", "10000"})
+    public int cacheSize;
+
+    private TokenManager tokenManager;
+    private JwtUserDetails userDetails;
+    private String token;
+
+    @Setup
+    public void setUp() throws Exception {
+        KeyPair keyPair = RsaKeyGenerator.generateKeyPair(algorithm);
+        RsaKeyManager rsaKeyManager = new RsaKeyManager(algorithm, Map.of(RsaKeyManager.DEFAULT_KEY_ID, keyPair), RsaKeyManager.DEFAULT_KEY_ID);
+
+        tokenManager = new TokenManager();
+        ReflectionTestUtils.setField(tokenManager, "rsaKeyManager", rsaKeyManager);
+        ReflectionTestUtils.setField(tokenManager, "verifiedTokenCache", new VerifiedTokenCache(cacheSize));
+        ReflectionTestUtils.setField(tokenManager, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(tokenManager, "tokenValidity", 3_600_000);
+
+        userDetails = new JwtUserDetails(42L, "bench@example.com", "$2a$04$benchmarkhash", Collections.emptyList());
+        token = tokenManager.generateJwtToken(userDetails);
+    }
+
+    @Benchmark
+    public String generateJwtToken() {
+        return tokenManager.generateJwtToken(userDetails);
+    }
+
+    @Benchmark
+    public Boolean validateJwtToken() {
+        return tokenManager.validateJwtToken(token, userDetails);
+    }
+
+    @Benchmark
+    public String getEmailFromToken() {
+        return tokenManager.getEmailFromToken(token);
+    }
+}
@@ -0,0 +1,33 @@
+package sj.sj_troubleshooting.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// regex check that UserService / JwtUserDetailsService used to run vs the shared EmailValidator
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EmailValidatorBenchmark {
+
+    @Param({"first.last+tag@sub.domain.org", "not-an-email"})
+    public String email;
+
+    private final EmailValidator validator = new EmailValidator();
+
+    @Benchmark
+    public boolean stringMatches() {
+        return email.matches("^[\\w_+-.]+@[\\w_+-.]+\\.[a-zA-Z]{2,}$");
+    }
+
+    @Benchmark
+    public boolean emailValidator() {
+        return validator.isValid(email);
+    }
+}
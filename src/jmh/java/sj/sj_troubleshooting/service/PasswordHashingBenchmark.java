@@ -0,0 +1,66 @@
+package sj.sj_troubleshooting.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// PasswordHashingService as logins and imports use it, hashing on its bounded pool;
+// strength is password.bcrypt.strength, 4 is the default in application.properties
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PasswordHashingBenchmark {
+    private static final int IMPORT_BATCH = 64;
+
+    @Param({"4", "10", "12"})
+    public int strength;
+
+    private PasswordHashingService passwordHashingService;
+    private String hash;
+    private List<String> importBatch;
+
+    @Setup
+    public void setUp() {
+        passwordHashingService = new PasswordHashingService();
+        ReflectionTestUtils.setField(passwordHashingService, "strength", strength);
+        ReflectionTestUtils.setField(passwordHashingService, "queueCapacity", 64);
+        ReflectionTestUtils.setField(passwordHashingService, "maxStrength", 14);
+        ReflectionTestUtils.setField(passwordHashingService, "meterRegistry", new SimpleMeterRegistry());
+        passwordHashingService.init();
+        hash = passwordHashingService.encode("benchmark-password");
+        importBatch = Collections.nCopies(IMPORT_BATCH, "benchmark-password");
+    }
+
+    @TearDown
+    public void tearDown() {
+        passwordHashingService.shutdown();
+    }
+
+    @Benchmark
+    public String encode() {
+        return passwordHashingService.encode("benchmark-password");
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return passwordHashingService.matches("benchmark-password", hash);
+    }
+
+    // one import chunk of IMPORT_BATCH passwords spread over the pool
+    @Benchmark
+    public List<String> encodeAll() {
+        return passwordHashingService.encodeAll(importBatch);
+    }
+}
@@ -0,0 +1,133 @@
+package sj.sj_troubleshooting.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.h2.tools.Server;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Blocking request handling on a Tomcat-sized platform pool vs one virtual thread per request.
+ * Each request is the work of GET /users/{id}: UserService.getUserInfo runs its JPA lookup over
+ * a 20-connection Hikari pool against an H2 TCP server, so every query blocks on a socket, and the
+ * user is serialized to JSON. A batch of {@code concurrency} requests is fired at once; the score
+ * is the batch time and p50/p99 request latency is printed per iteration.
+ * The virtual mode needs Java 21: ./gradlew jmh -PjavaVersion=21 -PjmhIncludes=RequestExecution
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RequestExecutionBenchmark {
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final int CONNECTION_POOL_SIZE = 20;
+    private static final int USERS = 10_000;
+
+    @Param({"platform", "virtual"})
+    public String mode;
+
+    @Param({"200", "2000"})
+    public int concurrency;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ExecutorService executor;
+    private Server database;
+    private UserDatabaseFixture userDatabase;
+    private UserService userService;
+    private Authentication[] requesters;
+    private long[] latencies;
+    private byte[][] responses;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        if (mode.equals("virtual")) {
+            try {
+                executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException("virtual mode needs Java 21, run with -PjavaVersion=21", e);
+            }
+        } else {
+            executor = Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+        }
+
+        database = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+        // 2000 requests queue on 20 connections, waiting is what is measured
+        userDatabase = new UserDatabaseFixture("jdbc:h2:tcp://localhost:" + database.getPort() + "/mem:requests"
+                + UserDatabaseFixture.POSTGRES_MODE, CONNECTION_POOL_SIZE, TimeUnit.MINUTES.toMillis(1));
+        userDatabase.seedUsers(USERS);
+        requesters = new Authentication[USERS + 1];
+        for (int id = 1; id <= USERS; id++) {
+            requesters[id] = new UsernamePasswordAuthenticationToken("user" + id + "@bench.test", null);
+        }
+
+        userService = new UserService();
+        ReflectionTestUtils.setField(userService, "entityManager", userDatabase.entityManager());
+        ReflectionTestUtils.setField(userService, "userRepo", userDatabase.userRepository());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+        userDatabase.close();
+        database.stop();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetLatencies() {
+        latencies = new long[concurrency];
+        responses = new byte[concurrency][];
+    }
+
+    @TearDown(Level.Iteration)
+    public void printLatencies() {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%n%s x%d: p50=%.1fms p99=%.1fms%n", mode, concurrency,
+                sorted[sorted.length / 2] / 1e6, sorted[(int) (sorted.length * 0.99)] / 1e6);
+    }
+
+    @Benchmark
+    public void requestBatch(Blackhole blackhole) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(concurrency);
+        AtomicInteger next = new AtomicInteger();
+        for (int i = 0; i < concurrency; i++) {
+            long submittedAt = System.nanoTime();
+            int request = i;
+            executor.execute(() -> {
+                try {
+                    responses[request] = handleRequest(1 + request % USERS);
+                } finally {
+                    latencies[next.getAndIncrement()] = System.nanoTime() - submittedAt;
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        blackhole.consume(responses);
+    }
+
+    private byte[] handleRequest(int id) {
+        try {
+            return objectMapper.writeValueAsBytes(userService.getUserInfo((long) id, requesters[id]));
+        } catch (Exception e) {
+            throw new IllegalStateException("Request for user " + id + " failed", e);
+        }
+    }
+}
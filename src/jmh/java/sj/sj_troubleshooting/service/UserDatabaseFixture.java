@@ -0,0 +1,83 @@
+package sj.sj_troubleshooting.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManager;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import sj.sj_troubleshooting.repository.UserRepository;
+
+import java.util.Map;
+
+/**
+ * Embedded H2 in PostgreSQL mode with the schema created from the entities and a JPA UserRepository
+ * on top, for benchmarks that run the services without a Spring context. {@link #seedUsers} also
+ * fills the load-test database.
+ */
+public class UserDatabaseFixture implements AutoCloseable {
+    // appended to a jdbc:h2: URL, the same settings as the loadtest profile
+    public static final String POSTGRES_MODE = ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH";
+    private static final String PASSWORD_HASH = "$2a$04$benchmark";
+
+    private final HikariDataSource dataSource;
+    private final LocalContainerEntityManagerFactoryBean entityManagerFactory;
+    private final EntityManager entityManager;
+    private final UserRepository userRepository;
+
+    public UserDatabaseFixture(String jdbcUrl) {
+        this(jdbcUrl, 10, 30_000);
+    }
+
+    public UserDatabaseFixture(String jdbcUrl, int maximumPoolSize, long connectionTimeoutMillis) {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(jdbcUrl);
+        dataSource.setUsername("sa");
+        // the benchmark jar keeps only one META-INF/services/java.sql.Driver, so name the driver
+        dataSource.setDriverClassName("org.h2.Driver");
+        dataSource.setMaximumPoolSize(maximumPoolSize);
+        dataSource.setConnectionTimeout(connectionTimeoutMillis);
+
+        entityManagerFactory = new LocalContainerEntityManagerFactoryBean();
+        entityManagerFactory.setDataSource(dataSource);
+        entityManagerFactory.setPackagesToScan("sj.sj_troubleshooting.entity");
+        entityManagerFactory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        entityManagerFactory.setJpaPropertyMap(Map.of("hibernate.hbm2ddl.auto", "create-drop"));
+        entityManagerFactory.afterPropertiesSet();
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory.getObject());
+        userRepository = new JpaRepositoryFactory(entityManager).getRepository(UserRepository.class);
+    }
+
+    public EntityManager entityManager() {
+        return entityManager;
+    }
+
+    public UserRepository userRepository() {
+        return userRepository;
+    }
+
+    public JpaTransactionManager transactionManager() {
+        return new JpaTransactionManager(entityManagerFactory.getObject());
+    }
+
+    // users 1..count named "user" + id, email "user" + id + "@bench.test"
+    public void seedUsers(long count) {
+        seedUsers(new JdbcTemplate(dataSource), "@bench.test", PASSWORD_HASH, 1, count);
+    }
+
+    // inserts users from..to inside the database, no rows cross the connection
+    public static void seedUsers(JdbcTemplate jdbcTemplate, String emailDomain, String passwordHash, long from, long to) {
+        // SYSTEM_RANGE names its column X, quoted because the URL lower-cases identifiers
+        jdbcTemplate.update("insert into users (userid, username, email, pass, version) "
+                + "select \"X\", 'user' || \"X\", 'user' || \"X\" || ?, ?, 0 from system_range(?, ?)",
+                emailDomain, passwordHash, from, to);
+    }
+
+    @Override
+    public void close() {
+        entityManagerFactory.destroy();
+        dataSource.close();
+    }
+}
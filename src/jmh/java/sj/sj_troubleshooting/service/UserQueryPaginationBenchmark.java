@@ -0,0 +1,84 @@
+package sj.sj_troubleshooting.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.test.util.ReflectionTestUtils;
+import sj.sj_troubleshooting.dto.UserQueryResultDTO;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// UserService.userQuery over JPA on embedded H2 (PostgreSQL mode): one 20-row page from the middle
+// of a substring search, by page number (database or search index) and by keyset cursor
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserQueryPaginationBenchmark {
+    private static final int PAGE_SIZE = 20;
+    // matches user1, user10..user19, user100.. : about a ninth of the users
+    private static final String TERM = "ser1";
+
+    @Param({"10000", "100000"})
+    public int users;
+
+    @Param({"false", "true"})
+    public boolean searchIndex;
+
+    @Param({"id", "username"})
+    public String sort;
+
+    private UserDatabaseFixture database;
+    private UserService userService;
+    private int middlePage;
+    private String middleCursor;
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        database = new UserDatabaseFixture("jdbc:h2:mem:benchmark" + UserDatabaseFixture.POSTGRES_MODE);
+        database.seedUsers(users);
+
+        UserSearchIndex index = new UserSearchIndex();
+        ReflectionTestUtils.setField(index, "enabled", searchIndex);
+        ReflectionTestUtils.setField(index, "maxUsers", users);
+        ReflectionTestUtils.setField(index, "userRepo", database.userRepository());
+        ReflectionTestUtils.setField(index, "transactionManager", database.transactionManager());
+        index.buildInBackground();
+        while (searchIndex && !index.isReady()) Thread.sleep(10);
+
+        userService = new UserService();
+        ReflectionTestUtils.setField(userService, "entityManager", database.entityManager());
+        ReflectionTestUtils.setField(userService, "userRepo", database.userRepository());
+        ReflectionTestUtils.setField(userService, "userSearchIndex", index);
+        ReflectionTestUtils.setField(userService, "meterRegistry", new SimpleMeterRegistry());
+
+        List<?> first = userService.userQuery(PAGE_SIZE, 1, TERM, null, sort, "asc", null);
+        int total = ((UserQueryResultDTO) first.get(0)).getTotalRecord();
+        middlePage = total / PAGE_SIZE / 2 + 1;
+        // usernames are "user" + id, so the middle user makes a valid cursor for either sort
+        long middleId = users / 2;
+        middleCursor = new UserQueryCursor(sort, false, middleId, sort.equals("username") ? "user" + middleId : "").encode();
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<?> middlePageByNumber() {
+        return userService.userQuery(PAGE_SIZE, middlePage, TERM, null, sort, "asc", null);
+    }
+
+    @Benchmark
+    public List<?> middlePageByCursor() {
+        return userService.userQuery(PAGE_SIZE, null, TERM, null, null, null, middleCursor);
+    }
+}
@@ -0,0 +1,47 @@
+package sj.sj_troubleshooting.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Latencies of one endpoint as seen by one worker thread, merged into a report at the end.
+ * Not thread-safe: every worker owns its recorders so recording never contends.
+ */
+class LatencyRecorder {
+    private long[] nanos = new long[1024];
+    private int count;
+    private long errors;
+    private boolean sorted;
+
+    void record(long latencyNanos, boolean ok) {
+        if (count == nanos.length) nanos = Arrays.copyOf(nanos, count * 2);
+        nanos[count++] = latencyNanos;
+        sorted = false;
+        if (!ok) errors++;
+    }
+
+    void addAll(LatencyRecorder other) {
+        if (count + other.count > nanos.length) nanos = Arrays.copyOf(nanos, Math.max(nanos.length * 2, count + other.count));
+        System.arraycopy(other.nanos, 0, nanos, count, other.count);
+        count += other.count;
+        errors += other.errors;
+        sorted = false;
+    }
+
+    int count() {
+        return count;
+    }
+
+    long errors() {
+        return errors;
+    }
+
+    double percentileMillis(double percentile) {
+        if (count == 0) return 0;
+        if (!sorted) {
+            Arrays.sort(nanos, 0, count);
+            sorted = true;
+        }
+        int index = (int) Math.min(count - 1, Math.ceil(percentile / 100 * count) - 1);
+        return nanos[Math.max(0, index)] / 1_000_000.0;
+    }
+}
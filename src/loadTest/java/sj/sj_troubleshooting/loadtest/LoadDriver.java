@@ -0,0 +1,185 @@
+package sj.sj_troubleshooting.loadtest;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop HTTP load: every worker logs in as a seeded user and then loops over a weighted mix
+ * of login, token refresh, /users/{id}, /users/query and update requests until the run ends.
+ * Only requests issued after the warmup are recorded. With more workers than users, workers share a
+ * user: one worker's refresh can revoke the other's tokens and their updates race on the version column.
+ * A login or refresh without new tokens and a 401 count as errors, and the worker logs in again with
+ * its next request.
+ */
+class LoadDriver {
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern REFRESH_TOKEN = Pattern.compile("\"refreshToken\"\\s*:\\s*\"([^\"]+)\"");
+
+    enum Endpoint { LOGIN, REFRESH, GET_USER, QUERY, UPDATE }
+
+    private final URI baseUri;
+    private final long users;
+    private final int concurrency;
+    private final Duration warmup;
+    private final Duration duration;
+    private final HttpClient client;
+
+    LoadDriver(URI baseUri, long users, int concurrency, Duration warmup, Duration duration) {
+        this.baseUri = baseUri;
+        this.users = users;
+        this.concurrency = concurrency;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    Map<Endpoint, LatencyRecorder> run() throws Exception {
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long measureUntil = measureFrom + duration.toNanos();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<Map<Endpoint, LatencyRecorder>>> results = new ArrayList<>();
+            for (int worker = 0; worker < concurrency; worker++) {
+                // spread workers over the seeded ids
+                long userId = 1 + (long) worker * Math.max(1, users / concurrency) % users;
+                results.add(workers.submit(() -> drive(userId, measureFrom, measureUntil)));
+            }
+            Map<Endpoint, LatencyRecorder> merged = newRecorders();
+            for (Future<Map<Endpoint, LatencyRecorder>> result : results) {
+                result.get().forEach((endpoint, recorder) -> merged.get(endpoint).addAll(recorder));
+            }
+            return merged;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    void printReport(Map<Endpoint, LatencyRecorder> recorders, PrintStream out) {
+        double seconds = duration.toMillis() / 1000.0;
+        out.printf("%nLoad test: %d users, %d workers, %.0f s measured%n", users, concurrency, seconds);
+        out.printf("%-10s %10s %8s %10s %9s %9s %9s %9s%n", "endpoint", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (Map.Entry<Endpoint, LatencyRecorder> entry : recorders.entrySet()) {
+            LatencyRecorder recorder = entry.getValue();
+            out.printf("%-10s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f%n", entry.getKey(), recorder.count(), recorder.errors(),
+                    recorder.count() / seconds, recorder.percentileMillis(50), recorder.percentileMillis(95),
+                    recorder.percentileMillis(99), recorder.percentileMillis(100));
+        }
+    }
+
+    private Map<Endpoint, LatencyRecorder> drive(long userId, long measureFrom, long measureUntil) throws Exception {
+        Map<Endpoint, LatencyRecorder> recorders = newRecorders();
+        String email = LoadTestSeeder.emailOf(userId);
+        // null until logged in and after the tokens stopped working
+        Tokens tokens = null;
+        long updates = 0;
+        // like a polling front-end: GETs send back the last ETag of their URL and may get 304
+        Map<String, String> eTags = new HashMap<>();
+        while (System.nanoTime() < measureUntil && !Thread.currentThread().isInterrupted()) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int pick = random.nextInt(100);
+            Endpoint endpoint;
+            HttpRequest request;
+            String getPath = null;
+            if (tokens == null || pick < 5) {
+                endpoint = Endpoint.LOGIN;
+                request = loginRequest(email);
+            } else if (pick < 10) {
+                endpoint = Endpoint.REFRESH;
+                request = jsonPost("/auth/refresh", "{\"refreshToken\":\"" + tokens.refreshToken() + "\"}");
+            } else if (pick < 50) {
+                endpoint = Endpoint.GET_USER;
+                getPath = "/users/" + userId;
+                request = conditional(authorized(getPath, tokens.accessToken()), eTags.get(getPath)).GET().build();
+            } else if (pick < 85) {
+                endpoint = Endpoint.QUERY;
+                long pages = Math.max(1, Math.min(50, users / 20));
+                String path = "/users/query?limit=20&page=" + (1 + random.nextLong(pages));
+                // every other query also filters on a username substring
+                if (random.nextBoolean()) path += "&username=user" + (1 + random.nextInt(99));
+                getPath = path;
+                request = conditional(authorized(path, tokens.accessToken()), eTags.get(path)).GET().build();
+            } else {
+                endpoint = Endpoint.UPDATE;
+                String body = "{\"username\":\"user" + userId + "-" + (++updates) + "\"}";
+                request = authorized("/users/" + userId + "/update", tokens.accessToken())
+                        .header("Content-Type", "application/json")
+                        .PUT(HttpRequest.BodyPublishers.ofString(body))
+                        .build();
+            }
+
+            long start = System.nanoTime();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            long end = System.nanoTime();
+            boolean ok;
+            if (endpoint == Endpoint.LOGIN || endpoint == Endpoint.REFRESH) {
+                tokens = tokensOf(response);
+                ok = tokens != null;
+            } else {
+                // a filtered query past the last match answers 400/404, that is still a served request
+                ok = response.statusCode() < 500 && response.statusCode() != 401 && response.statusCode() != 403;
+                if (response.statusCode() == 401) tokens = null;
+            }
+            if (start >= measureFrom) recorders.get(endpoint).record(end - start, ok);
+            if (getPath != null) {
+                String path = getPath;
+                response.headers().firstValue("ETag").ifPresent(eTag -> eTags.put(path, eTag));
+            }
+        }
+        return recorders;
+    }
+
+    // tokens from a login or refresh response, null when it failed
+    private static Tokens tokensOf(HttpResponse<String> response) {
+        if (response.statusCode() != 200) return null;
+        Matcher token = TOKEN.matcher(response.body());
+        Matcher refreshToken = REFRESH_TOKEN.matcher(response.body());
+        if (!token.find() || !refreshToken.find()) return null;
+        return new Tokens(token.group(1), refreshToken.group(1));
+    }
+
+    private HttpRequest loginRequest(String email) {
+        return jsonPost("/auth/login", "{\"email\":\"" + email + "\",\"password\":\"" + LoadTestSeeder.PASSWORD + "\"}");
+    }
+
+    private HttpRequest jsonPost(String path, String body) {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static HttpRequest.Builder conditional(HttpRequest.Builder builder, String eTag) {
+        return eTag != null ? builder.header("If-None-Match", eTag) : builder;
+    }
+
+    private HttpRequest.Builder authorized(String path, String token) {
+        return HttpRequest.newBuilder(baseUri.resolve(path)).header("Authorization", "Bearer " + token);
+    }
+
+    private record Tokens(String accessToken, String refreshToken) {
+    }
+
+    private static Map<Endpoint, LatencyRecorder> newRecorders() {
+        Map<Endpoint, LatencyRecorder> recorders = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) recorders.put(endpoint, new LatencyRecorder());
+        return recorders;
+    }
+}
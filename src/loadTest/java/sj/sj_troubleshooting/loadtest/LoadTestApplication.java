@@ -0,0 +1,35 @@
+package sj.sj_troubleshooting.loadtest;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import sj.sj_troubleshooting.SjTroubleshootingApplication;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Entry point of the loadTest Gradle task: boots the application with the "loadtest" profile
+ * (embedded H2, seeded by LoadTestSeeder), drives traffic through the real filter chain and
+ * prints throughput and latency percentiles per endpoint.
+ * Settings come from system properties loadtest.users, loadtest.concurrency,
+ * loadtest.warmupSeconds and loadtest.durationSeconds.
+ */
+public class LoadTestApplication {
+
+    public static void main(String[] args) throws Exception {
+        long users = Long.getLong("loadtest.users", 10_000);
+        int concurrency = Integer.getInteger("loadtest.concurrency", 32);
+        Duration warmup = Duration.ofSeconds(Long.getLong("loadtest.warmupSeconds", 10));
+        Duration duration = Duration.ofSeconds(Long.getLong("loadtest.durationSeconds", 30));
+        if (users < 1 || concurrency < 1) throw new IllegalArgumentException("loadtest.users and loadtest.concurrency must be positive");
+
+        SpringApplication application = new SpringApplication(SjTroubleshootingApplication.class);
+        application.setAdditionalProfiles("loadtest");
+        try (ConfigurableApplicationContext context = application.run(args)) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            LoadDriver driver = new LoadDriver(URI.create("http://localhost:" + port), users, concurrency, warmup, duration);
+            driver.printReport(driver.run(), System.out);
+        }
+    }
+}
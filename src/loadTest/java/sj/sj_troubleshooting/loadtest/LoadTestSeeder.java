@@ -0,0 +1,50 @@
+package sj.sj_troubleshooting.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+import sj.sj_troubleshooting.service.UserDatabaseFixture;
+
+/**
+ * Seeds the load-test database before the application reports ready, so the search index and
+ * email Bloom filter are built over the seeded users. Rows are generated inside H2 by the benchmarks'
+ * {@link UserDatabaseFixture#seedUsers}, all users share one precomputed BCrypt hash of {@link #PASSWORD}.
+ */
+@Component
+@Profile("loadtest")
+public class LoadTestSeeder implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(LoadTestSeeder.class);
+    static final String PASSWORD = "loadtest-password";
+    private static final long BATCH_SIZE = 500_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${loadtest.users:10000}")
+    private long users;
+
+    static String emailOf(long id) {
+        return "user" + id + "@load.test";
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        String hash = new BCryptPasswordEncoder(4).encode(PASSWORD);
+        for (long from = 1; from <= users; from += BATCH_SIZE) {
+            long to = Math.min(from + BATCH_SIZE - 1, users);
+            UserDatabaseFixture.seedUsers(jdbcTemplate, "@load.test", hash, from, to);
+        }
+        // ids handed out by Hibernate must start after the seeded range
+        jdbcTemplate.execute("alter sequence users_userid_seq restart with " + (users + 1));
+        log.atInfo().addKeyValue("users", users).addKeyValue("millis", (System.nanoTime() - start) / 1_000_000)
+                .log("Load test users seeded");
+    }
+}
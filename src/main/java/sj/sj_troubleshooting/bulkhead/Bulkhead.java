@@ -0,0 +1,71 @@
+package sj.sj_troubleshooting.bulkhead;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency budget for one class of requests: at most maxConcurrent run at once, at most maxQueue
+ * more wait up to maxWaitMillis for a slot, everything beyond that is rejected straight away.
+ * Since a request holds at most one JDBC connection at a time, this also caps the connections a
+ * class can take from the pool.
+ */
+public class Bulkhead {
+    private final String name;
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final long maxWaitMillis;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Counter rejected;
+
+    public Bulkhead(String name, int maxConcurrent, int maxQueue, long maxWaitMillis, MeterRegistry meterRegistry) {
+        if (maxConcurrent <= 0) throw new IllegalArgumentException("maxConcurrent of bulkhead " + name + " must be positive");
+        this.name = name;
+        this.permits = new Semaphore(maxConcurrent);
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = maxQueue;
+        this.maxWaitMillis = maxWaitMillis;
+        Gauge.builder("bulkhead.active", this, Bulkhead::getActive).tag("name", name).register(meterRegistry);
+        Gauge.builder("bulkhead.waiting", waiting, AtomicInteger::get).tag("name", name).register(meterRegistry);
+        Gauge.builder("bulkhead.max", this, bulkhead -> bulkhead.maxConcurrent).tag("name", name).register(meterRegistry);
+        rejected = meterRegistry.counter("bulkhead.rejected", "name", name);
+    }
+
+    // true when the caller got a slot and must release() it exactly once
+    public boolean tryEnter() throws InterruptedException {
+        if (permits.tryAcquire()) return true;
+        if (maxWaitMillis <= 0 || waiting.incrementAndGet() > maxQueue) {
+            if (maxWaitMillis > 0) waiting.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        try {
+            if (permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) return true;
+        } finally {
+            waiting.decrementAndGet();
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getActive() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public int getWaiting() {
+        return waiting.get();
+    }
+}
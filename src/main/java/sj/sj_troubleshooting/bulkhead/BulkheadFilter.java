@@ -0,0 +1,147 @@
+package sj.sj_troubleshooting.bulkhead;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Separate concurrency budgets for sign-in (/auth), bulk work (user query, export, import and
+ * bulk delete) and everything else (single user lookups and updates), so a burst of table scans
+ * can't take every connection and worker thread from logins. Runs ahead of the JWT filter, whose
+ * user lookup then counts against the budget of the request it authenticates. A full bulkhead
+ * answers 503 with Retry-After instead of queueing without bound.
+ */
+@Component
+public class BulkheadFilter extends OncePerRequestFilter {
+    private static final Logger log = LoggerFactory.getLogger(BulkheadFilter.class);
+
+    @Value("${bulkhead.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bulkhead.auth.maxConcurrent:20}")
+    private int authMaxConcurrent;
+
+    @Value("${bulkhead.auth.maxQueue:50}")
+    private int authMaxQueue;
+
+    @Value("${bulkhead.auth.maxWaitMillis:1000}")
+    private long authMaxWaitMillis;
+
+    @Value("${bulkhead.lookup.maxConcurrent:5}")
+    private int lookupMaxConcurrent;
+
+    @Value("${bulkhead.lookup.maxQueue:50}")
+    private int lookupMaxQueue;
+
+    @Value("${bulkhead.lookup.maxWaitMillis:500}")
+    private long lookupMaxWaitMillis;
+
+    @Value("${bulkhead.search.maxConcurrent:3}")
+    private int searchMaxConcurrent;
+
+    @Value("${bulkhead.search.maxQueue:10}")
+    private int searchMaxQueue;
+
+    @Value("${bulkhead.search.maxWaitMillis:100}")
+    private long searchMaxWaitMillis;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Bulkhead auth;
+    private Bulkhead lookup;
+    private Bulkhead search;
+
+    @PostConstruct
+    void init() {
+        auth = new Bulkhead("auth", authMaxConcurrent, authMaxQueue, authMaxWaitMillis, meterRegistry);
+        lookup = new Bulkhead("lookup", lookupMaxConcurrent, lookupMaxQueue, lookupMaxWaitMillis, meterRegistry);
+        search = new Bulkhead("search", searchMaxConcurrent, searchMaxQueue, searchMaxWaitMillis, meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // health checks and scrapes must keep answering while the service is saturated
+        return !enabled || request.getServletPath().startsWith("/actuator/");
+    }
+
+    Bulkhead bulkheadFor(String path) {
+        if (path.startsWith("/auth/")) return auth;
+        return switch (path) {
+            case "/users/query", "/users/export", "/users/import", "/users/bulk-delete" -> search;
+            default -> lookup;
+        };
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        Bulkhead bulkhead = bulkheadFor(request.getServletPath());
+        boolean entered;
+        try {
+            entered = bulkhead.tryEnter();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            entered = false;
+        }
+        if (!entered) {
+            log.atDebug().addKeyValue("bulkhead", bulkhead.getName()).addKeyValue("path", request.getServletPath())
+                    .log("Bulkhead full, request rejected");
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", "1");
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getWriter().write("Server busy, please retry shortly.");
+            return;
+        }
+
+        boolean releaseNow = true;
+        try {
+            filterChain.doFilter(request, response);
+            // a streamed export keeps its connection after this thread returns, hold the slot until it completes
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingListener(bulkhead));
+                releaseNow = false;
+            }
+        } finally {
+            if (releaseNow) bulkhead.release();
+        }
+    }
+
+    // onComplete also follows a timeout or an error, so it is the one place to release
+    private record ReleasingListener(Bulkhead bulkhead) implements AsyncListener {
+        @Override
+        public void onComplete(AsyncEvent event) {
+            bulkhead.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // the request was put into async mode again, keep listening
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
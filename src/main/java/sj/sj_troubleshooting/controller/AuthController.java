@@ -5,6 +5,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import sj.sj_troubleshooting.dto.JwtRequestModel;
 import sj.sj_troubleshooting.dto.JwtResponseModel;
+import sj.sj_troubleshooting.dto.RefreshTokenRequestDTO;
 import sj.sj_troubleshooting.dto.RegisterNewUserDTO;
 import sj.sj_troubleshooting.entity.UserEntity;
 import sj.sj_troubleshooting.service.UserService;
@@ -26,4 +27,20 @@ public class AuthController {
     ) {
         return ResponseEntity.ok(userService.authenticateLogin(request));
     }
+    // new access token (and rotated refresh token) without checking the password again
+    @PostMapping("/refresh")
+    public ResponseEntity<JwtResponseModel> refresh(
+            @RequestBody RefreshTokenRequestDTO request
+    ) {
+        return ResponseEntity.ok(userService.refreshAccessToken(request.getRefreshToken()));
+    }
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(
+            @RequestBody RefreshTokenRequestDTO request,
+            @RequestHeader(value = "Authorization", required = false) String authorization
+    ) {
+        String accessToken = authorization != null && authorization.startsWith("Bearer ") ? authorization.substring(7) : null;
+        userService.logout(request.getRefreshToken(), accessToken);
+        return ResponseEntity.noContent().build();
+    }
 }
@@ -1,15 +1,23 @@
 package sj.sj_troubleshooting.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import sj.sj_troubleshooting.dto.*;
 import sj.sj_troubleshooting.entity.UserEntity;
 import sj.sj_troubleshooting.exception.DeniedUserInfoRequestException;
 import sj.sj_troubleshooting.exception.UserNotFoundException;
+import sj.sj_troubleshooting.service.UserImportService;
+import sj.sj_troubleshooting.service.UserQueryETag;
 import sj.sj_troubleshooting.service.UserService;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -19,19 +27,59 @@ public class UserController {
     @Autowired
     UserService userService;
 
+    @Autowired
+    UserImportService userImportService;
+
+    @Autowired
+    UserQueryETag userQueryETag;
+
+    // polling clients send the ETag back: an unchanged version is answered with 304 before the user is loaded
     @GetMapping("/{id}")
-    public ResponseEntity<UserEntity> getUser(@PathVariable("id") Long id, Authentication authentication){
-        return ResponseEntity.ok(userService.getUserInfo(id, authentication));
+    public ResponseEntity<UserEntity> getUser(@PathVariable("id") Long id, Authentication authentication, WebRequest webRequest){
+        if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && webRequest.checkNotModified(userETag(id, userService.getUserVersion(id, authentication)))) {
+            return null;
+        }
+        UserEntity user = userService.getUserInfo(id, authentication);
+        return ResponseEntity.ok().eTag(userETag(user.getId(), user.getVersion())).body(user);
+    }
+
+    private static String userETag(Long id, long version) {
+        return "user-" + id + "-" + version;
     }
+
     @GetMapping("/query")
     public ResponseEntity<?> queryUser(
             @RequestParam(name = "username", required = false) String username,
             @RequestParam(name = "email", required = false) String email,
             @RequestParam(name = "limit", required = false) Integer limit,
-            @RequestParam(name = "page", required = false) Integer page
+            @RequestParam(name = "page", required = false) Integer page,
+            @RequestParam(name = "sort", required = false) String sort,
+            @RequestParam(name = "order", required = false) String order,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            WebRequest webRequest
     ){
-        List<?> userList = userService.userQuery(limit, page, username, email);
-        return ResponseEntity.ok(userList);
+        // the page query still runs, a matching ETag only saves sending the page again
+        List<?> userList = userService.userQuery(limit, page, username, email, sort, order, cursor);
+        String eTag = userQueryETag.of(userList, username, email, limit, page, sort, order, cursor);
+        if (webRequest.checkNotModified(eTag)) return null;
+        return ResponseEntity.ok().eTag(eTag).body(userList);
+    }
+
+    // newline-delimited JSON, streamed while the users are read from the database
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        StreamingResponseBody body = outputStream -> userService.exportUsers(outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    // bulk import, rows are streamed from the request body: NDJSON objects or username,email,password CSV
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<UserImportReportDTO> importUsers(HttpServletRequest request) throws IOException {
+        boolean csv = MediaType.parseMediaType(request.getContentType()).isCompatibleWith(MediaType.parseMediaType("text/csv"));
+        return ResponseEntity.ok(userImportService.importUsers(request.getInputStream(), csv));
     }
 
     @PutMapping("/{id}/update")
@@ -59,4 +107,9 @@ public class UserController {
         boolean deleted = userService.deleteUser(email);
         return ResponseEntity.ok(deleted ? "User deleted" : "User NOT deleted");
     }
+
+    @DeleteMapping("/bulk-delete")
+    public ResponseEntity<List<BulkDeleteResultDTO>> bulkRemoveUsers(@RequestBody BulkDeleteRequestDTO request){
+        return ResponseEntity.ok(userService.bulkDeleteUsers(request));
+    }
 }
@@ -0,0 +1,72 @@
+package sj.sj_troubleshooting.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Primary/replica setup, active only when spring.datasource.replica.url is set; otherwise Spring Boot's
+ * single auto-configured pool is used. The primary pool keeps the spring.datasource.* and
+ * spring.datasource.hikari.* settings, the replica pool takes spring.datasource.replica.hikari.*.
+ * Both pools are no default injection candidates, so JPA, Flyway and the health check only see the
+ * routing data source.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.datasource.replica.url")
+public class ReplicaDataSourceConfig {
+
+    @Bean(defaultCandidate = false)
+    @Qualifier("primary")
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean(defaultCandidate = false)
+    @Qualifier("replica")
+    @ConfigurationProperties("spring.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(@Value("${spring.datasource.replica.url}") String url,
+                                              @Value("${spring.datasource.replica.username:${spring.datasource.username:}}") String username,
+                                              @Value("${spring.datasource.replica.password:${spring.datasource.password:}}") String password) {
+        HikariDataSource replica = DataSourceBuilder.create().type(HikariDataSource.class)
+                .url(url).username(username).password(password).build();
+        replica.setPoolName("replica");
+        replica.setReadOnly(true);
+        // an unreachable replica should fail over to the primary quickly, not after Hikari's default 30s
+        replica.setConnectionTimeout(1000);
+        return replica;
+    }
+
+    @Bean(destroyMethod = "stop")
+    public ReplicaHealthMonitor replicaHealthMonitor(@Qualifier("replica") DataSource replica,
+                                                     MeterRegistry meterRegistry,
+                                                     @Value("${spring.datasource.replica.lagQuery:}") String lagQuery,
+                                                     @Value("${spring.datasource.replica.maxLagMillis:5000}") long maxLagMillis,
+                                                     @Value("${spring.datasource.replica.checkMillis:5000}") long checkMillis) {
+        ReplicaHealthMonitor monitor = new ReplicaHealthMonitor(replica, lagQuery, maxLagMillis);
+        monitor.start(checkMillis);
+        Gauge.builder("datasource.replica.available", monitor, m -> m.isAvailable() ? 1 : 0).register(meterRegistry);
+        Gauge.builder("datasource.replica.lag", monitor, ReplicaHealthMonitor::getLagMillis)
+                .baseUnit("milliseconds").register(meterRegistry);
+        return monitor;
+    }
+
+    // the lazy proxy defers fetching the connection until the transaction's read-only flag is known
+    @Bean
+    public DataSource dataSource(@Qualifier("primary") DataSource primary,
+                                 @Qualifier("replica") DataSource replica,
+                                 ReplicaHealthMonitor replicaHealthMonitor) {
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replica, replicaHealthMonitor));
+    }
+}
@@ -0,0 +1,88 @@
+package sj.sj_troubleshooting.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides whether read-only transactions may use the replica. A background check connects every
+ * checkMillis and, when a lag query is configured, compares the replica's lag (in milliseconds) with
+ * maxLagMillis. A failed connection attempt on the request path takes the replica out immediately,
+ * the next successful check brings it back.
+ */
+public class ReplicaHealthMonitor {
+    private static final Logger log = LoggerFactory.getLogger(ReplicaHealthMonitor.class);
+
+    private final DataSource replica;
+    private final String lagQuery;
+    private final long maxLagMillis;
+    private volatile boolean available;
+    private volatile long lagMillis;
+    private ScheduledExecutorService checker;
+
+    public ReplicaHealthMonitor(DataSource replica, String lagQuery, long maxLagMillis) {
+        this.replica = replica;
+        this.lagQuery = lagQuery == null ? "" : lagQuery.trim();
+        this.maxLagMillis = maxLagMillis;
+    }
+
+    public void start(long checkMillis) {
+        check();
+        checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checker.scheduleWithFixedDelay(this::check, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        if (checker != null) checker.shutdownNow();
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    // a request could not get a replica connection: stop routing there until the next check succeeds
+    public void markDown(SQLException cause) {
+        if (available) log.warn("Replica connection failed, routing reads to the primary", cause);
+        available = false;
+    }
+
+    public void check() {
+        boolean up;
+        try (Connection connection = replica.getConnection()) {
+            lagMillis = lagQuery.isEmpty() ? 0 : queryLag(connection);
+            up = lagMillis <= maxLagMillis;
+            if (!up && available) {
+                log.atWarn().addKeyValue("lagMillis", lagMillis).addKeyValue("maxLagMillis", maxLagMillis)
+                        .log("Replica lags behind, routing reads to the primary");
+            }
+        } catch (SQLException | RuntimeException e) {
+            if (available) log.warn("Replica health check failed, routing reads to the primary", e);
+            up = false;
+        }
+        if (up && !available) log.atInfo().addKeyValue("lagMillis", lagMillis).log("Replica available for reads");
+        available = up;
+    }
+
+    private long queryLag(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(lagQuery)) {
+            // no row or NULL: nothing replayed yet, treat as in sync
+            return result.next() ? (long) result.getDouble(1) : 0;
+        }
+    }
+}
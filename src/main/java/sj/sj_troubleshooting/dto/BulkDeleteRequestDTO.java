@@ -0,0 +1,12 @@
+package sj.sj_troubleshooting.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class BulkDeleteRequestDTO {
+    private List<String> emails = new ArrayList<>();
+    private List<Long> ids = new ArrayList<>();
+}
@@ -0,0 +1,15 @@
+package sj.sj_troubleshooting.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkDeleteResultDTO {
+    private Long id;
+    private String email;
+    // DELETED or NOT_FOUND
+    private String status;
+}
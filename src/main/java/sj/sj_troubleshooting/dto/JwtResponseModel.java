@@ -1,21 +1,22 @@
 package sj.sj_troubleshooting.dto;
 
-import com.fasterxml.jackson.annotation.JsonFormat;
-import org.springframework.beans.factory.annotation.Value;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 import java.io.Serializable;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class JwtResponseModel implements Serializable {
-    @Value("${tokenValidity}")
-    private int tokenValidity;
     private static final long serialVersionUID = 1L;
     private final String token;
     private final Instant expiredAt;
-    public JwtResponseModel(String token){
+    private final String refreshToken;
+    private final Instant refreshExpiredAt;
+    public JwtResponseModel(String token, Instant expiredAt, String refreshToken, Instant refreshExpiredAt){
         this.token = token;
-        this.expiredAt = Instant.now().plus(tokenValidity, ChronoUnit.MILLIS);
+        this.expiredAt = expiredAt;
+        this.refreshToken = refreshToken;
+        this.refreshExpiredAt = refreshExpiredAt;
     }
     public String getToken(){
         return token;
@@ -24,4 +25,12 @@ public class JwtResponseModel implements Serializable {
     public Instant getExpiredAt() {
         return expiredAt;
     }
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public Instant getRefreshExpiredAt() {
+        return refreshExpiredAt;
+    }
 }
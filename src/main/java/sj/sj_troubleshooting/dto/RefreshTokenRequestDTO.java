@@ -0,0 +1,8 @@
+package sj.sj_troubleshooting.dto;
+
+import lombok.Data;
+
+@Data
+public class RefreshTokenRequestDTO {
+    private String refreshToken;
+}
@@ -0,0 +1,12 @@
+package sj.sj_troubleshooting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class UserImportFailureDTO {
+    private long line;
+    private String email;
+    private String reason;
+}
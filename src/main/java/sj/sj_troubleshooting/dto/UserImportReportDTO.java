@@ -0,0 +1,18 @@
+package sj.sj_troubleshooting.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class UserImportReportDTO {
+    private long imported;
+    private long failed;
+    private List<UserImportFailureDTO> failures = new ArrayList<>();
+
+    public void addFailure(long line, String email, String reason) {
+        failures.add(new UserImportFailureDTO(line, email, reason));
+        failed++;
+    }
+}
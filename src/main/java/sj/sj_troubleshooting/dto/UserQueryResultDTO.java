@@ -16,6 +16,8 @@ public class UserQueryResultDTO implements Serializable {
     private Integer pageNumber;
     private Integer pageSize;
     private Integer totalRecord;
+    // keyset cursor for the page after this one, absent on the last page
+    private String nextCursor;
 
     public UserQueryResultDTO(Long id, String username, String email) {
         this.id = id;
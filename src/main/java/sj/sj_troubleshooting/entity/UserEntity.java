@@ -8,7 +8,9 @@ import lombok.Data;
 @Table(name = "users")
 public class UserEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // pooled sequence ids let Hibernate batch inserts, see README_USER_IMPORT.md for the sequence change
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_userid_seq", allocationSize = 50)
     @Column(name = "userid")
     private Long id;
 
@@ -20,4 +22,9 @@ public class UserEntity {
 
     @Column(name = "email", unique = true, nullable = false)
     private String email;
+
+    // bumped by Hibernate on every update, the ETag of GET /users/{id}; see README_USER_ETAGS.md
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
 }
@@ -0,0 +1,7 @@
+package sj.sj_troubleshooting.exception;
+
+public class InvalidRefreshTokenException extends RuntimeException {
+    public InvalidRefreshTokenException(String message) {
+        super(message);
+    }
+}
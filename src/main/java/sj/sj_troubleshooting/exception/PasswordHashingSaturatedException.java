@@ -0,0 +1,7 @@
+package sj.sj_troubleshooting.exception;
+
+public class PasswordHashingSaturatedException extends RuntimeException {
+    public PasswordHashingSaturatedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,54 @@
+package sj.sj_troubleshooting.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.filter.Filter;
+import ch.qos.logback.core.spi.FilterReply;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Logback filter that keeps only a fraction of the events below WARN per logger category,
+ * so high-volume debug/info events on the request path cost the same whatever the traffic.
+ * Categories are logger name prefixes configured as {@code <category>prefix=rate</category>};
+ * the longest matching prefix wins and loggers without a category are never sampled.
+ */
+public class SamplingFilter extends Filter<ILoggingEvent> {
+
+    private final Map<String, Double> rates = new ConcurrentHashMap<>();
+    // logger name -> resolved rate, loggers are few so this stays small
+    private final Map<String, Double> resolved = new ConcurrentHashMap<>();
+
+    public void addCategory(String category) {
+        int separator = category.indexOf('=');
+        if (separator < 0) {
+            addWarn("Ignoring sampling category without a rate: " + category);
+            return;
+        }
+        try {
+            double rate = Double.parseDouble(category.substring(separator + 1).trim());
+            rates.put(category.substring(0, separator).trim(), Math.max(0, Math.min(1, rate)));
+            resolved.clear();
+        } catch (NumberFormatException e) {
+            addWarn("Ignoring sampling category with an invalid rate: " + category);
+        }
+    }
+
+    @Override
+    public FilterReply decide(ILoggingEvent event) {
+        if (event.getLevel().isGreaterOrEqual(Level.WARN)) return FilterReply.NEUTRAL;
+        double rate = resolved.computeIfAbsent(event.getLoggerName(), this::rateFor);
+        if (rate >= 1) return FilterReply.NEUTRAL;
+        return ThreadLocalRandom.current().nextDouble() < rate ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    private double rateFor(String loggerName) {
+        String match = null;
+        for (String prefix : rates.keySet()) {
+            if (loggerName.startsWith(prefix) && (match == null || prefix.length() > match.length())) match = prefix;
+        }
+        return match == null ? 1 : rates.get(match);
+    }
+}
@@ -1,13 +1,52 @@
 package sj.sj_troubleshooting.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import sj.sj_troubleshooting.dto.UserQueryResultDTO;
 import sj.sj_troubleshooting.entity.UserEntity;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<UserEntity, Long> {
+    // derived queries get no transaction of their own: read-only, so outside a write transaction the
+    // lookup goes to the replica when one is configured; inside one it joins and reads the primary
+    @Transactional(readOnly = true)
     public Optional<UserEntity> findByEmail(String email);
     public Optional<UserEntity> findByUsername(String username);
+
+    // rows are pulled from a server-side cursor in fetch-size chunks, must be consumed inside a transaction
+    @Query("select new sj.sj_troubleshooting.dto.UserQueryResultDTO(u.id, u.username, u.email) from UserEntity u order by u.id")
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"))
+    public Stream<UserQueryResultDTO> streamAllUsers();
+
+    @Query("select u.email from UserEntity u")
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "1000"))
+    public Stream<String> streamAllEmails();
+
+    @Query("select new sj.sj_troubleshooting.dto.UserQueryResultDTO(u.id, u.username, u.email) from UserEntity u where u.id in :ids")
+    public List<UserQueryResultDTO> findQueryResultsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select new sj.sj_troubleshooting.dto.UserQueryResultDTO(u.id, u.username, u.email) from UserEntity u where u.email in :emails")
+    public List<UserQueryResultDTO> findQueryResultsByEmails(@Param("emails") Collection<String> emails);
+
+    @Modifying
+    @Query("delete from UserEntity u where u.id in :ids")
+    public int deleteAllByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select u.version from UserEntity u where u.id = :id")
+    public Optional<Long> findVersionById(@Param("id") Long id);
+
+    @Query("select u.email from UserEntity u where u.email in :emails")
+    public List<String> findExistingEmails(@Param("emails") Collection<String> emails);
 }
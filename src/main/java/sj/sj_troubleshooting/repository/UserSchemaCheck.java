@@ -0,0 +1,69 @@
+package sj.sj_troubleshooting.repository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.SequenceGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import sj.sj_troubleshooting.entity.UserEntity;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * The users schema is managed outside the application, so refuse to start against a database that is
+ * missing the changes UserEntity relies on: a users_userid_seq increment that differs from the pooled
+ * allocation size hands out colliding ids, and without the version column every user query fails.
+ * Runs after the entity manager factory so a schema Hibernate creates itself is checked too.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class UserSchemaCheck {
+    static final String SEQUENCE = "users_userid_seq";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @PostConstruct
+    public void check() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        checkSequence(jdbcTemplate);
+        checkVersionColumn(jdbcTemplate);
+    }
+
+    private void checkSequence(JdbcTemplate jdbcTemplate) {
+        long allocationSize = allocationSize();
+        List<String> increments = jdbcTemplate.queryForList(
+                "select increment from information_schema.sequences "
+                        + "where lower(sequence_name) = ? and lower(sequence_schema) = lower(current_schema)",
+                String.class, SEQUENCE);
+        if (increments.isEmpty()) {
+            throw new IllegalStateException("Sequence " + SEQUENCE + " not found, see README_USER_IMPORT.md");
+        }
+        long increment = Long.parseLong(increments.get(0).trim());
+        if (increment != allocationSize) {
+            throw new IllegalStateException("Sequence " + SEQUENCE + " increments by " + increment
+                    + " but UserEntity allocates " + allocationSize + " ids at a time, run: ALTER SEQUENCE "
+                    + SEQUENCE + " INCREMENT BY " + allocationSize + "; (see README_USER_IMPORT.md)");
+        }
+    }
+
+    private void checkVersionColumn(JdbcTemplate jdbcTemplate) {
+        try {
+            jdbcTemplate.queryForList("select version from users where 1 = 0");
+        } catch (DataAccessException e) {
+            throw new IllegalStateException("Column users.version is missing, run: ALTER TABLE users ADD COLUMN "
+                    + "version BIGINT NOT NULL DEFAULT 0; (see README_USER_ETAGS.md)", e);
+        }
+    }
+
+    static long allocationSize() {
+        try {
+            return UserEntity.class.getDeclaredField("id").getAnnotation(SequenceGenerator.class).allocationSize();
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
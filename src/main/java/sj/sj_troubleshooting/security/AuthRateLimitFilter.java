@@ -0,0 +1,205 @@
+package sj.sj_troubleshooting.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limits the unauthenticated /auth endpoints before any BCrypt or database work happens,
+ * per client IP and per submitted email, so neither one address nor one targeted account can
+ * burn the CPU. Rejected requests get 429 with Retry-After. Limits are requests per minute,
+ * 0 disables a limit.
+ */
+@Component
+public class AuthRateLimitFilter extends OncePerRequestFilter {
+    private static final Logger log = LoggerFactory.getLogger(AuthRateLimitFilter.class);
+    // auth bodies are tiny, anything bigger is refused rather than passed on without an email check
+    static final int MAX_BODY_BYTES = 16 * 1024;
+
+    @Value("${auth.rateLimit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${auth.rateLimit.maxKeys:100000}")
+    private int maxKeys;
+
+    @Value("${auth.rateLimit.login.ipPerMinute:60}")
+    private int loginIpPerMinute;
+
+    @Value("${auth.rateLimit.login.emailPerMinute:10}")
+    private int loginEmailPerMinute;
+
+    @Value("${auth.rateLimit.register.ipPerMinute:10}")
+    private int registerIpPerMinute;
+
+    @Value("${auth.rateLimit.register.emailPerMinute:3}")
+    private int registerEmailPerMinute;
+
+    @Value("${auth.rateLimit.refresh.ipPerMinute:120}")
+    private int refreshIpPerMinute;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private RateLimiter loginByIp;
+    private RateLimiter loginByEmail;
+    private RateLimiter registerByIp;
+    private RateLimiter registerByEmail;
+    private RateLimiter refreshByIp;
+
+    @PostConstruct
+    void init() {
+        loginByIp = limiter(loginIpPerMinute);
+        loginByEmail = limiter(loginEmailPerMinute);
+        registerByIp = limiter(registerIpPerMinute);
+        registerByEmail = limiter(registerEmailPerMinute);
+        refreshByIp = limiter(refreshIpPerMinute);
+    }
+
+    private RateLimiter limiter(int perMinute) {
+        return perMinute > 0 ? new RateLimiter(perMinute, 1, TimeUnit.MINUTES, maxKeys) : null;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !"POST".equals(request.getMethod()) || !request.getServletPath().startsWith("/auth/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        String path = request.getServletPath();
+        RateLimiter byIp;
+        RateLimiter byEmail;
+        switch (path) {
+            case "/auth/login" -> { byIp = loginByIp; byEmail = loginByEmail; }
+            case "/auth/register" -> { byIp = registerByIp; byEmail = registerByEmail; }
+            case "/auth/refresh" -> { byIp = refreshByIp; byEmail = null; }
+            default -> { byIp = null; byEmail = null; }
+        }
+
+        // behind a proxy, enable server.forward-headers-strategy so this is the client's address
+        if (byIp != null && reject(response, path, "ip", byIp.tryAcquire(request.getRemoteAddr()))) return;
+
+        if (byEmail != null) {
+            CachedBodyRequest cached = CachedBodyRequest.of(request);
+            // padding the body past the cap must not skip the email limit
+            if (cached == null) {
+                response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value());
+                return;
+            }
+            request = cached;
+            String email = emailOf(cached.body);
+            if (email != null && reject(response, path, "email", byEmail.tryAcquire(email))) return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private boolean reject(HttpServletResponse response, String path, String key, long waitNanos) throws IOException {
+        if (waitNanos == 0) return false;
+        meterRegistry.counter("auth.ratelimit.rejected", "path", path, "key", key).increment();
+        log.atDebug().addKeyValue("path", path).addKeyValue("key", key).log("Auth request rate limited");
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", Long.toString(retryAfterSeconds));
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write("Too many requests, please retry in " + retryAfterSeconds + " seconds.");
+        return true;
+    }
+
+    // the same email in any case is the same account
+    private String emailOf(byte[] body) {
+        try {
+            JsonNode email = objectMapper.readTree(body).path("email");
+            return email.isTextual() ? email.asText().trim().toLowerCase(Locale.ROOT) : null;
+        } catch (IOException e) {
+            return null; // not JSON: let the controller reject it
+        }
+    }
+
+    // the body has to be read to find the email, this replays it to the controller
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        // null when the declared length, or for chunked bodies the actual one, exceeds MAX_BODY_BYTES
+        static CachedBodyRequest of(HttpServletRequest request) throws IOException {
+            if (request.getContentLengthLong() > MAX_BODY_BYTES) return null;
+            byte[] body = request.getInputStream().readNBytes(MAX_BODY_BYTES + 1);
+            return body.length > MAX_BODY_BYTES ? null : new CachedBodyRequest(request, body);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // the body is already in memory: all of it is available now, then it has been read
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        if (!isFinished()) listener.onDataAvailable();
+                        if (isFinished()) listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return input.read(buffer, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
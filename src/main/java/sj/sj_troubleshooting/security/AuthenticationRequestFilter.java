@@ -1,11 +1,16 @@
 package sj.sj_troubleshooting.security;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -20,12 +25,22 @@ import java.io.IOException;
 
 @Component
 public class AuthenticationRequestFilter extends OncePerRequestFilter {
+    private static final Logger log = LoggerFactory.getLogger(AuthenticationRequestFilter.class);
+
     @Autowired
     private JwtUserDetailsService jwtUserDetailsService;
     @Autowired
     private TokenManager tokenManager;
     @Autowired
     private UserRepository userRepo;
+    @Autowired
+    private TokenVersionRegistry tokenVersionRegistry;
+    @Autowired
+    private TokenRevocationStore tokenRevocationStore;
+
+    // when true the principal is built from the token claims instead of loading the user on every request
+    @Value("${jwt.stateless:false}")
+    private boolean stateless;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -34,34 +49,39 @@ public class AuthenticationRequestFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         String path = request.getServletPath();
 
-        System.out.println("Filter IS RUNNING");
-        // Log when token is not found
         String tokenHeader = request.getHeader("Authorization");
         String email = null;
         String token = null;
+        Claims claims = null;
 
 
         // Check token
         if (tokenHeader != null && tokenHeader.startsWith("Bearer ")) {
             token = tokenHeader.substring(7);
-            System.out.println("EMAIL IS: ");
-            System.out.println(tokenManager.getEmailFromToken(token));
             try {
-                email = tokenManager.getEmailFromToken(token); // ?
-            } catch (IllegalArgumentException e) {
-                System.out.println("Unable to get JWT Token");
+                // verified once here, the same claims are reused for validation below
+                claims = tokenManager.getVerifiedClaims(token);
+                // in-memory lookup only, revoked tokens are treated like invalid ones
+                if (tokenRevocationStore.isRevoked(claims)) {
+                    log.atDebug().addKeyValue("path", path).log("JWT token has been revoked");
+                } else {
+                    email = claims.getSubject();
+                }
             } catch (ExpiredJwtException e) {
-                System.out.println("JWT Token has expired");
+                log.atDebug().addKeyValue("path", path).log("JWT token has expired");
+            } catch (JwtException | IllegalArgumentException e) {
+                log.atDebug().addKeyValue("path", path).addKeyValue("error", e.getClass().getSimpleName())
+                        .log("Unable to verify JWT token");
             }
-        } else System.out.println("Bearer String not found in token");
-        System.out.println("tokenHeader: " + tokenHeader);
-        System.out.println("token: " + token);
+        }
 
         if (email != null
 //                && SecurityContextHolder.getContext().getAuthentication() == null
         ) {
-            UserDetails userDetails = jwtUserDetailsService.loadUserByEmail(email);
-            if (tokenManager.validateJwtToken(token, userDetails)) {
+            UserDetails userDetails = stateless && claims.get(TokenManager.USER_ID_CLAIM) != null
+                    ? loadUserFromClaims(claims)
+                    : jwtUserDetailsService.loadUserByEmail(email);
+            if (userDetails != null && tokenManager.validateJwtToken(claims, userDetails)) {
                 UsernamePasswordAuthenticationToken
                         authenticationToken = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
@@ -69,9 +89,25 @@ public class AuthenticationRequestFilter extends OncePerRequestFilter {
                 SecurityContextHolder.getContext().setAuthentication(authenticationToken);
             }
         }
-        System.out.println("ContextHolder is: ");
-        System.out.println(SecurityContextHolder.getContext());
+        // one structured event per request; never log the token itself
+        log.atDebug()
+                .addKeyValue("path", path)
+                .addKeyValue("bearer", token != null)
+                .addKeyValue("user", email)
+                .addKeyValue("authenticated", SecurityContextHolder.getContext().getAuthentication() != null)
+                .log("Request authentication");
 
         filterChain.doFilter(request, response);
     }
+
+    // stateless mode: trust the signed claims, only the token version is checked against the in-memory table
+    private UserDetails loadUserFromClaims(Claims claims) {
+        Long userId = claims.get(TokenManager.USER_ID_CLAIM, Long.class);
+        Integer tokenVersion = claims.get(TokenManager.TOKEN_VERSION_CLAIM, Integer.class);
+        if (!tokenVersionRegistry.isCurrent(userId, tokenVersion)) {
+            log.atDebug().addKeyValue("userId", userId).log("JWT token version is outdated");
+            return null;
+        }
+        return new JwtUserDetails(userId, claims.getSubject(), "", jwtUserDetailsService.authoritiesOf(claims.getSubject()));
+    }
 }
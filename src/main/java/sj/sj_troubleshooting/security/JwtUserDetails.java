@@ -0,0 +1,24 @@
+package sj.sj_troubleshooting.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * UserDetails that also carries the user's id, so the id can be written into issued tokens
+ * and read back from them without another repository lookup.
+ */
+public class JwtUserDetails extends User {
+    private static final long serialVersionUID = 125L;
+    private final Long id;
+
+    public JwtUserDetails(Long id, String email, String password, Collection<? extends GrantedAuthority> authorities) {
+        super(email, password, authorities);
+        this.id = id;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,81 @@
+package sj.sj_troubleshooting.security;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket per key, implemented as GCRA: each key keeps only its "theoretical
+ * arrival time" in one AtomicLong, updated with a CAS. A key allows {@code limit} requests at once
+ * and regains one every {@code period / limit}. At most maxKeys keys are tracked. When full, idle
+ * keys go first: their bucket has refilled, so dropping them changes nothing. Only if that frees
+ * too little are the least recently requested keys dropped, so cycling through fresh keys cannot
+ * reset a key that is still being hit.
+ */
+public class RateLimiter {
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final int maxKeys;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public RateLimiter(int limit, long period, TimeUnit unit, int maxKeys) {
+        if (limit <= 0) throw new IllegalArgumentException("limit must be positive");
+        if (maxKeys <= 0) throw new IllegalArgumentException("maxKeys must be positive");
+        this.emissionIntervalNanos = unit.toNanos(period) / limit;
+        this.burstToleranceNanos = emissionIntervalNanos * (limit - 1);
+        this.maxKeys = maxKeys;
+    }
+
+    // 0 when the request may proceed, otherwise how long the caller has to wait, in nanoseconds
+    public long tryAcquire(String key) {
+        return tryAcquire(key, System.nanoTime());
+    }
+
+    long tryAcquire(String key, long now) {
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) bucket = track(key, now);
+        bucket.lastRequest = now;
+        AtomicLong arrival = bucket.arrival;
+        while (true) {
+            long theoretical = arrival.get();
+            long allowedAt = theoretical - burstToleranceNanos;
+            if (now < allowedAt) return allowedAt - now;
+            long next = Math.max(theoretical, now) + emissionIntervalNanos;
+            if (arrival.compareAndSet(theoretical, next)) return 0;
+        }
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    private Bucket track(String key, long now) {
+        if (buckets.size() >= maxKeys) evictForSpace(now);
+        Bucket created = new Bucket(now - emissionIntervalNanos);
+        Bucket existing = buckets.putIfAbsent(key, created);
+        return existing != null ? existing : created;
+    }
+
+    // frees a tenth of maxKeys, so a full map is not swept on every new key
+    private synchronized void evictForSpace(long now) {
+        if (buckets.size() < maxKeys) return;
+        buckets.values().removeIf(bucket -> bucket.arrival.get() <= now);
+        int excess = buckets.size() - (maxKeys - Math.max(1, maxKeys / 10));
+        if (excess <= 0) return;
+        long[] lastRequests = buckets.values().stream().mapToLong(bucket -> bucket.lastRequest).sorted().toArray();
+        if (lastRequests.length == 0) return;
+        long cutoff = lastRequests[Math.min(excess, lastRequests.length) - 1];
+        buckets.values().removeIf(bucket -> bucket.lastRequest <= cutoff);
+    }
+
+    private static final class Bucket {
+        final AtomicLong arrival;
+        // LRU order for eviction, a plain write per request
+        volatile long lastRequest;
+
+        Bucket(long arrival) {
+            this.arrival = new AtomicLong(arrival);
+        }
+    }
+}
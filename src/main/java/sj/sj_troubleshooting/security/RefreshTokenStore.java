@@ -0,0 +1,125 @@
+package sj.sj_troubleshooting.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory store of opaque refresh tokens. Only a 128-bit digest of each token is kept, with the
+ * user it belongs to, so a leaked heap dump holds no usable tokens. Every refresh consumes its token
+ * and issues a new one; presenting an already consumed token means it was stolen or replayed, so all
+ * refresh tokens of that user are revoked.
+ */
+@Component
+public class RefreshTokenStore {
+    private static final long SWEEP_INTERVAL_MILLIS = 1000;
+
+    @Value("${jwt.refresh.validityMillis:1209600000}")
+    private long validityMillis;
+
+    @Value("${jwt.refresh.maxTokens:100000}")
+    private int maxTokens;
+
+    private final SecureRandom random = new SecureRandom();
+    private final Map<TokenDigest, RefreshToken> tokens = new ConcurrentHashMap<>();
+    private final Map<Long, Set<TokenDigest>> tokensByUser = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep = new AtomicLong();
+
+    public RefreshTokenStore() {
+    }
+
+    public RefreshTokenStore(long validityMillis, int maxTokens) {
+        this.validityMillis = validityMillis;
+        this.maxTokens = maxTokens;
+    }
+
+    public IssuedRefreshToken issue(Long userId, String email, int tokenVersion) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        long now = System.currentTimeMillis();
+        if (tokens.size() >= maxTokens) evictForSpace(now);
+
+        TokenDigest digest = TokenDigest.of(token);
+        RefreshToken refreshToken = new RefreshToken(userId, email, tokenVersion, now + validityMillis, false);
+        tokens.put(digest, refreshToken);
+        tokensByUser.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(digest);
+        return new IssuedRefreshToken(token, Instant.ofEpochMilli(refreshToken.expiresAt()));
+    }
+
+    // marks the token used and returns what it was issued for, or null if it can't be used (again)
+    public RefreshToken consume(String token) {
+        if (token == null || token.isBlank()) return null;
+        TokenDigest digest = TokenDigest.of(token);
+        RefreshToken refreshToken = tokens.get(digest);
+        if (refreshToken == null) return null;
+        if (refreshToken.expiresAt() <= System.currentTimeMillis()) {
+            remove(digest, refreshToken);
+            return null;
+        }
+        // losing the race against a concurrent refresh counts as reuse too
+        if (refreshToken.consumed() || !tokens.replace(digest, refreshToken, refreshToken.markConsumed())) {
+            revokeAll(refreshToken.userId());
+            return null;
+        }
+        return refreshToken;
+    }
+
+    public boolean revoke(String token) {
+        if (token == null || token.isBlank()) return false;
+        TokenDigest digest = TokenDigest.of(token);
+        RefreshToken refreshToken = tokens.get(digest);
+        return refreshToken != null && remove(digest, refreshToken);
+    }
+
+    public void revokeAll(Long userId) {
+        Set<TokenDigest> digests = tokensByUser.remove(userId);
+        if (digests != null) digests.forEach(tokens::remove);
+    }
+
+    public int size() {
+        return tokens.size();
+    }
+
+    private boolean remove(TokenDigest digest, RefreshToken refreshToken) {
+        if (!tokens.remove(digest, refreshToken)) return false;
+        tokensByUser.computeIfPresent(refreshToken.userId(), (id, digests) -> {
+            digests.remove(digest);
+            return digests.isEmpty() ? null : digests;
+        });
+        return true;
+    }
+
+    // drop expired and consumed tokens first, then arbitrary ones until a tenth of the store is free again
+    private void evictForSpace(long now) {
+        long last = lastSweep.get();
+        if (now - last >= SWEEP_INTERVAL_MILLIS && lastSweep.compareAndSet(last, now)) {
+            tokens.forEach((digest, refreshToken) -> {
+                if (refreshToken.consumed() || refreshToken.expiresAt() <= now) remove(digest, refreshToken);
+            });
+        }
+        int target = maxTokens - Math.max(1, maxTokens / 10);
+        Iterator<Map.Entry<TokenDigest, RefreshToken>> iterator = tokens.entrySet().iterator();
+        while (tokens.size() > target && iterator.hasNext()) {
+            Map.Entry<TokenDigest, RefreshToken> entry = iterator.next();
+            remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public record RefreshToken(Long userId, String email, int tokenVersion, long expiresAt, boolean consumed) {
+        RefreshToken markConsumed() {
+            return new RefreshToken(userId, email, tokenVersion, expiresAt, true);
+        }
+    }
+
+    public record IssuedRefreshToken(String token, Instant expiresAt) {
+    }
+}
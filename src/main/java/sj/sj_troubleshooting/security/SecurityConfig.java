@@ -6,10 +6,15 @@ import com.nimbusds.jose.jwk.RSAKey;
 import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
 import com.nimbusds.jose.jwk.source.JWKSource;
 import com.nimbusds.jose.proc.SecurityContext;
+import jakarta.servlet.DispatcherType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.Customizer;
@@ -18,14 +23,15 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtEncoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import sj.sj_troubleshooting.bulkhead.BulkheadFilter;
 import sj.sj_troubleshooting.service.JwtUserDetailsService;
+import sj.sj_troubleshooting.service.PasswordHashingService;
 
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
@@ -33,11 +39,7 @@ import java.security.interfaces.RSAPublicKey;
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
-    @Value("${jwt.private.key}")
-    RSAPrivateKey privateKey;
-
-    @Value("${jwt.public.key}")
-    RSAPublicKey publicKey;
+    private static final Logger log = LoggerFactory.getLogger(SecurityConfig.class);
 
     @Autowired
     private JwtUserDetailsService userDetailsService;
@@ -45,6 +47,15 @@ public class SecurityConfig {
     @Autowired
     private AuthenticationRequestFilter filter;
 
+    @Autowired
+    private AuthRateLimitFilter authRateLimitFilter;
+
+    @Autowired
+    private BulkheadFilter bulkheadFilter;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
     @Bean
     public AuthenticationManager authenticationManager(AuthenticationConfiguration authConfig) throws Exception {
         return authConfig.getAuthenticationManager();
@@ -52,10 +63,10 @@ public class SecurityConfig {
 
     @Bean
     public DaoAuthenticationProvider authProvider(){
-        System.out.println("Auth Provider IS RUNNING");
+        log.debug("Creating DaoAuthenticationProvider");
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
-        authProvider.setPasswordEncoder(new BCryptPasswordEncoder(4));
+        authProvider.setPasswordEncoder(passwordHashingService);
 //        authProvider.authenticate()
         return authProvider;
     }
@@ -63,7 +74,7 @@ public class SecurityConfig {
 
     @Bean
     protected SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
-        System.out.println("SecurityFilterChain IS RUNNING");
+        log.debug("Building SecurityFilterChain");
         return http
                 .csrf(AbstractHttpConfigurer::disable)
 //                .httpBasic(Customizer.withDefaults())
@@ -71,21 +82,34 @@ public class SecurityConfig {
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authenticationProvider(authProvider())
                 .authorizeHttpRequests(request -> request
+                        // streamed responses finish on an async dispatch, the request itself was already authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/auth/*","/users/sayhi").permitAll()
+                        // scraped by Prometheus; only health and prometheus are exposed over HTTP
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
+                        // administrative, admins are listed in users.admins
+                        .requestMatchers(HttpMethod.DELETE, "/users/bulk-delete").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
+                // throttles /auth before any token parsing or password hashing
+                .addFilterBefore(authRateLimitFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(bulkheadFilter, UsernamePasswordAuthenticationFilter.class)
                 .addFilterBefore(filter, UsernamePasswordAuthenticationFilter.class)
                 .build();
     }
+    // Nimbus encoder/decoder only understand the PEM keys as RSA, so they exist only with jwt.algorithm=RS256
     @Bean
-    public JwtEncoder keyEncoder(){
+    @ConditionalOnProperty(name = "jwt.algorithm", havingValue = "RS256", matchIfMissing = true)
+    public JwtEncoder keyEncoder(@Value("${jwt.private.key}") RSAPrivateKey privateKey,
+                                 @Value("${jwt.public.key}") RSAPublicKey publicKey){
         JWK jwk = new RSAKey.Builder(publicKey).privateKey(privateKey).build();
         JWKSource<SecurityContext> jwks = new ImmutableJWKSet<>(new JWKSet(jwk));
         return new NimbusJwtEncoder(jwks);
     }
     
     @Bean
-    public JwtDecoder jwtDecoder(){
+    @ConditionalOnProperty(name = "jwt.algorithm", havingValue = "RS256", matchIfMissing = true)
+    public JwtDecoder jwtDecoder(@Value("${jwt.public.key}") RSAPublicKey publicKey){
         return NimbusJwtDecoder.withPublicKey(publicKey).build();
     }
 }
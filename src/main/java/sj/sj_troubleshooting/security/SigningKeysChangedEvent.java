@@ -0,0 +1,8 @@
+package sj.sj_troubleshooting.security;
+
+import java.util.Set;
+
+// published by RsaKeyManager after a reload swapped in a different key set;
+// changedKeyIds are kids still present whose public key was replaced
+public record SigningKeysChangedEvent(String activeKeyId, Set<String> removedKeyIds, Set<String> changedKeyIds) {
+}
@@ -1,21 +1,27 @@
 package sj.sj_troubleshooting.security;
 
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.Jws;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
-import java.security.PrivateKey;
-import java.security.PublicKey;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Component
 public class TokenManager {
+    private static final Logger log = LoggerFactory.getLogger(TokenManager.class);
     private static final long serialVersionUID = 123456L;
 
     @Value("${tokenValidity}")
@@ -24,52 +30,95 @@ public class TokenManager {
     @Autowired
     private RsaKeyManager rsaKeyManager;
 
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String TOKEN_VERSION_CLAIM = "ver";
+
     // generate Jwt token containing username from userDetails, stored in payload
-    // combining with header and signature hashed using RS256 algo with private key
+    // combining with header and signature made with the jwt.algorithm private key (RS256, ES256 or EdDSA)
     public String generateJwtToken(UserDetails userDetails){
         Map<String, Object> claims = new HashMap<>();
-        System.out.println("UserDetails' username is: "+ userDetails.getUsername());
-        System.out.println("UserDetails' password is: "+ userDetails.getPassword());
-        return Jwts
+        // user id and token version let the stateless auth mode build the principal from the token alone
+        if (userDetails instanceof JwtUserDetails jwtUserDetails) {
+            claims.put(USER_ID_CLAIM, jwtUserDetails.getId());
+            claims.put(TOKEN_VERSION_CLAIM, TokenVersionRegistry.versionOf(jwtUserDetails.getPassword()));
+        }
+        log.atDebug().addKeyValue("user", userDetails.getUsername()).log("Issuing JWT token");
+        // kid and private key come from the same key set, even if a rotation happens meanwhile
+        RsaKeyManager.SigningKey signingKey = rsaKeyManager.getActiveKey();
+        return meterRegistry.timer("jwt.generate").record(() -> Jwts
                 .builder()
-                .setClaims(claims) // reset claims to an empty hashmap
+                .setClaims(claims) // reset claims to the user id / token version map
+                .id(newTokenId()) // jti, lets a single token be revoked
+                .header().keyId(signingKey.kid()).and()
                 .setSubject(userDetails.getUsername()) // Username here is user's email
 //                .claim("role", userDetails.getAuthorities().toArray())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + tokenValidity))
-                .signWith(getPrivateKey(), SignatureAlgorithm.RS256) // specify the algorithm to sign the jwt using private key
-                .compact();
+                .signWith(signingKey.privateKey(), rsaKeyManager.getSignatureAlgorithm()) // the header's alg names the configured algorithm
+                .compact());
+    }
+
+    // 128 random bits: unique, not secret, so no SecureRandom on the login path
+    private static String newTokenId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        byte[] id = new byte[16];
+        random.nextBytes(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id);
+    }
+
+    public int getTokenValidity() {
+        return tokenValidity;
     }
 
     public Boolean validateJwtToken(String token, UserDetails userDetails){
-        final String email = getEmailFromToken(token);
-        final Claims claims = Jwts
-                .parser()
-                .verifyWith(getPublicKey()) // Use verifyWith instead of setSigningKey
-                .build()
-                .parseSignedClaims(token) // Use parseSignedClaims instead of parseClaimsJws
-                .getPayload(); // Use getPayload instead of getBody
-        // check the expiration state of token (redundant? because parser already check and throw exceptions if token expired)
-        Boolean isTokenExpired = claims.getExpiration().before(new Date());
-        // TRUE if token got matching email
-        return (email.equals(userDetails.getUsername())) && !isTokenExpired;
+        return validateJwtToken(getVerifiedClaims(token), userDetails);
     }
 
-    public String getEmailFromToken(String token) {
-        final Claims claims = Jwts
-                .parser()
-                .verifyWith(getPublicKey()) // Use verifyWith instead of setSigningKey
-                .build()
-                .parseSignedClaims(token) // Use parseSignedClaims instead of parseClaimsJws
-                .getPayload(); // Use getPayload instead of getBody
-        return claims.getSubject();
+    // claims must come from getVerifiedClaims, the signature is not checked again here.
+    // jwt.validate times this check, the one the request filter runs; signature checks are in jwt.verify
+    public Boolean validateJwtToken(Claims claims, UserDetails userDetails){
+        return meterRegistry.timer("jwt.validate").record(() -> {
+            // the parser already rejects expired tokens, this only matters for claims served from the cache
+            Boolean isTokenExpired = claims.getExpiration().before(new Date());
+            // TRUE if token got matching email
+            return (claims.getSubject().equals(userDetails.getUsername())) && !isTokenExpired;
+        });
     }
 
-    private PrivateKey getPrivateKey() {
-        return rsaKeyManager.getPrivateKey();
+    public String getEmailFromToken(String token) {
+        return getVerifiedClaims(token).getSubject();
     }
 
-    private PublicKey getPublicKey() {
-        return rsaKeyManager.getPublicKey();
+    // single verification pass: parse and check the RS256 signature once, then serve repeats from the cache
+    public Claims getVerifiedClaims(String token) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Claims claims = verifiedTokenCache.get(token);
+        if (claims != null) {
+            sample.stop(meterRegistry.timer("jwt.verify", "cache", "hit", "outcome", "valid"));
+            return claims;
+        }
+
+        try {
+            // the parser is built once and picks the verification key by the token's kid
+            Jws<Claims> jws = rsaKeyManager.getParser().parseSignedClaims(token);
+            // the key alone would also accept sibling algorithms (e.g. PS256 for an RSA key), only take the configured one
+            String expectedAlgorithm = rsaKeyManager.getSignatureAlgorithm().getId();
+            if (!expectedAlgorithm.equals(jws.getHeader().getAlgorithm())) {
+                throw new UnsupportedJwtException("Token is not signed with " + expectedAlgorithm);
+            }
+            claims = jws.getPayload(); // Use getPayload instead of getBody
+        } catch (RuntimeException e) {
+            sample.stop(meterRegistry.timer("jwt.verify", "cache", "miss", "outcome", e.getClass().getSimpleName()));
+            throw e;
+        }
+        sample.stop(meterRegistry.timer("jwt.verify", "cache", "miss", "outcome", "valid"));
+        verifiedTokenCache.put(token, claims);
+        return claims;
     }
 }
\ No newline at end of file
@@ -0,0 +1,93 @@
+package sj.sj_troubleshooting.security;
+
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory revocation list for access tokens, checked by AuthenticationRequestFilter without any I/O.
+ * Holds single revoked token ids (jti, as 128-bit digests) until the token would have expired anyway,
+ * and per-user "not before" times that reject every token issued earlier (deleted users, password
+ * changes) for as long as such a token could still be valid. Nothing is kept past that, so the store
+ * only ever holds revocations from the last tokenValidity.
+ */
+@Component
+public class TokenRevocationStore {
+    private static final long SWEEP_INTERVAL_MILLIS = 1000;
+
+    @Value("${tokenValidity}")
+    private long tokenValidity;
+
+    // jti digest -> expiry of the revoked token
+    private final Map<TokenDigest, Long> revokedTokens = new ConcurrentHashMap<>();
+    // user id -> not before, in epoch millis
+    private final Map<Long, NotBefore> notBefore = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep = new AtomicLong();
+
+    public TokenRevocationStore() {
+    }
+
+    public TokenRevocationStore(long tokenValidity) {
+        this.tokenValidity = tokenValidity;
+    }
+
+    public void revokeToken(String tokenId, Date expiresAt) {
+        if (tokenId == null || expiresAt == null) return;
+        long now = System.currentTimeMillis();
+        if (expiresAt.getTime() <= now) return;
+        revokedTokens.put(TokenDigest.of(tokenId), expiresAt.getTime());
+        sweep(now);
+    }
+
+    // every token of the user issued before now stops working, tokens issued afterwards are unaffected
+    public void revokeAllFor(Long userId) {
+        if (userId == null) return;
+        long now = System.currentTimeMillis();
+        // iat has second precision, so a token issued earlier in this second reads as before now and is
+        // rejected; one issued later in this second is too, the client just logs in again
+        notBefore.put(userId, new NotBefore(now, now + tokenValidity));
+        sweep(now);
+    }
+
+    public boolean isRevoked(Claims claims) {
+        // nothing revoked in the last tokenValidity: the common case costs two size checks
+        if (revokedTokens.isEmpty() && notBefore.isEmpty()) return false;
+        long now = System.currentTimeMillis();
+        sweep(now);
+
+        Long userId = claims.get(TokenManager.USER_ID_CLAIM, Long.class);
+        if (userId != null) {
+            NotBefore userNotBefore = notBefore.get(userId);
+            Date issuedAt = claims.getIssuedAt();
+            if (userNotBefore != null && userNotBefore.keepUntil() > now
+                    && (issuedAt == null || issuedAt.getTime() < userNotBefore.epochMillis())) {
+                return true;
+            }
+        }
+        if (claims.getId() != null && !revokedTokens.isEmpty()) {
+            Long expiresAt = revokedTokens.get(TokenDigest.of(claims.getId()));
+            return expiresAt != null && expiresAt > now;
+        }
+        return false;
+    }
+
+    public int size() {
+        return revokedTokens.size() + notBefore.size();
+    }
+
+    private void sweep(long now) {
+        long last = lastSweep.get();
+        if (now - last < SWEEP_INTERVAL_MILLIS || !lastSweep.compareAndSet(last, now)) return;
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+        notBefore.values().removeIf(entry -> entry.keepUntil() <= now);
+    }
+
+    // keepUntil: no token issued before epochMillis can still be valid after it
+    private record NotBefore(long epochMillis, long keepUntil) {
+    }
+}
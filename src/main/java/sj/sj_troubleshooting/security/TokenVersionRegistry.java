@@ -0,0 +1,57 @@
+package sj.sj_troubleshooting.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import sj.sj_troubleshooting.entity.UserEntity;
+import sj.sj_troubleshooting.repository.UserRepository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory table of the current token version of each user, used by the stateless auth mode.
+ * A user's token version is derived from their password hash, so changing the password
+ * invalidates every token issued before the change. The repository is only read on a table miss.
+ */
+@Component
+public class TokenVersionRegistry {
+    // marks users that no longer exist, so their tokens don't send every request to the database
+    private static final int MISSING_USER = Integer.MIN_VALUE;
+
+    @Value("${jwt.tokenVersion.maxSize:100000}")
+    private int maxSize;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    private final Map<Long, Integer> versions = new ConcurrentHashMap<>();
+
+    public static int versionOf(String passwordHash) {
+        int version = passwordHash.hashCode();
+        return version == MISSING_USER ? version + 1 : version;
+    }
+
+    public boolean isCurrent(Long userId, Integer tokenVersion) {
+        if (userId == null || tokenVersion == null) return false;
+        Integer current = versions.get(userId);
+        if (current == null) {
+            current = userRepo.findById(userId)
+                    .map(user -> versionOf(user.getPassword()))
+                    .orElse(MISSING_USER);
+            // keep the table bounded: start over rather than grow without limit
+            if (versions.size() >= maxSize) versions.clear();
+            versions.put(userId, current);
+        }
+        return current != MISSING_USER && current.equals(tokenVersion);
+    }
+
+    public void update(UserEntity user) {
+        if (user.getId() == null) return;
+        versions.put(user.getId(), versionOf(user.getPassword()));
+    }
+
+    public void evict(Long userId) {
+        if (userId != null) versions.remove(userId);
+    }
+}
@@ -0,0 +1,83 @@
+package sj.sj_troubleshooting.security;
+
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of JWTs whose signature has already been verified.
+ * Entries are keyed by a SHA-256 digest of the raw token and dropped once the token expires,
+ * so a client reusing the same bearer token only pays for one signature check.
+ */
+@Component
+public class VerifiedTokenCache {
+    // minimum gap between two full sweeps of expired entries when the cache is full
+    private static final long SWEEP_INTERVAL_MILLIS = 1000;
+
+    @Value("${jwt.verifiedCache.maxSize:10000}")
+    private int maxSize;
+
+    private final Map<TokenDigest, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep = new AtomicLong();
+
+    public VerifiedTokenCache() {
+    }
+
+    public VerifiedTokenCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    // returns the cached claims, or null if the token was never verified or has expired since
+    public Claims get(String token) {
+        TokenDigest key = TokenDigest.of(token);
+        Entry entry = entries.get(key);
+        if (entry == null) return null;
+        if (entry.expiresAt() <= System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.claims();
+    }
+
+    public void put(String token, Claims claims) {
+        if (maxSize <= 0 || claims.getExpiration() == null) return;
+        long expiresAt = claims.getExpiration().getTime();
+        long now = System.currentTimeMillis();
+        if (expiresAt <= now) return;
+
+        if (entries.size() >= maxSize) {
+            sweepExpired(now);
+            // still full of live tokens: skip caching rather than grow past the bound
+            if (entries.size() >= maxSize) return;
+        }
+        entries.put(TokenDigest.of(token), new Entry(claims, expiresAt));
+    }
+
+    // tokens signed with a key that was rotated out or replaced must not keep passing from the cache
+    @EventListener
+    public void onSigningKeysChanged(SigningKeysChangedEvent event) {
+        if (!event.removedKeyIds().isEmpty() || !event.changedKeyIds().isEmpty()) clear();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void sweepExpired(long now) {
+        long last = lastSweep.get();
+        if (now - last < SWEEP_INTERVAL_MILLIS || !lastSweep.compareAndSet(last, now)) return;
+        entries.values().removeIf(entry -> entry.expiresAt() <= now);
+    }
+
+    private record Entry(Claims claims, long expiresAt) {
+    }
+}
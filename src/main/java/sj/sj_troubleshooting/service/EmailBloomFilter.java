@@ -0,0 +1,157 @@
+package sj.sj_troubleshooting.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import sj.sj_troubleshooting.repository.UserRepository;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * Lock-free Bloom filter of registered emails. A negative answer means the email is definitely
+ * not registered, so signup can skip its findByEmail pre-check; the unique constraint on
+ * users.email stays the authoritative guard. Deleted emails can't be removed from a Bloom filter,
+ * they only raise the false-positive rate, so the filter is rebuilt once enough of them pile up.
+ * Until the first build finishes every email is reported as possibly present.
+ */
+@Component
+public class EmailBloomFilter {
+    private static final Logger log = LoggerFactory.getLogger(EmailBloomFilter.class);
+
+    @Value("${users.emailBloom.expectedUsers:1000000}")
+    private long expectedUsers;
+
+    @Value("${users.emailBloom.falsePositiveRate:0.01}")
+    private double falsePositiveRate;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private volatile Bits bits;
+    // filter being rebuilt, receives the same puts as the live one until it replaces it
+    private volatile Bits rebuilding;
+    private final AtomicBoolean rebuildInProgress = new AtomicBoolean();
+    private final AtomicLong deletionsSinceBuild = new AtomicLong();
+    private volatile long insertionsAtBuild;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildInBackground() {
+        if (!rebuildInProgress.compareAndSet(false, true)) return;
+        Thread builder = new Thread(this::build, "email-bloom-builder");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    public boolean mightContain(String email) {
+        Bits current = bits;
+        return current == null || current.mightContain(email);
+    }
+
+    public void put(String email) {
+        Bits current = bits;
+        if (current != null) current.put(email);
+        Bits next = rebuilding;
+        if (next != null) next.put(email);
+    }
+
+    public void recordDeletions(int count) {
+        // rebuild once deleted emails make up a tenth of what the filter was built with
+        if (deletionsSinceBuild.addAndGet(count) > Math.max(1000, insertionsAtBuild / 10)) buildInBackground();
+    }
+
+    private void build() {
+        try {
+            // leave room for growth so the false-positive rate holds until the next rebuild
+            Bits next = new Bits(Math.max(expectedUsers, 2 * userRepo.count()), falsePositiveRate);
+            rebuilding = next;
+            deletionsSinceBuild.set(0);
+            TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+            long count = readOnly.execute(status -> {
+                long inserted = 0;
+                try (Stream<String> emails = userRepo.streamAllEmails()) {
+                    for (String email : (Iterable<String>) emails::iterator) {
+                        next.put(email);
+                        inserted++;
+                    }
+                }
+                return inserted;
+            });
+            insertionsAtBuild = count;
+            bits = next;
+            log.atInfo().addKeyValue("emails", count).log("Email Bloom filter ready");
+        } catch (RuntimeException e) {
+            log.warn("Email Bloom filter build failed, signup keeps checking the database", e);
+        } finally {
+            rebuilding = null;
+            rebuildInProgress.set(false);
+        }
+    }
+
+    private static final class Bits {
+        private final AtomicLongArray words;
+        private final long bitCount;
+        private final int hashCount;
+
+        Bits(long expectedInsertions, double falsePositiveRate) {
+            long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (optimalBits + 63) / 64));
+            words = new AtomicLongArray(wordCount);
+            bitCount = (long) wordCount * 64;
+            hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+        }
+
+        void put(String email) {
+            long hash1 = hash(email);
+            long hash2 = mix(hash1) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current;
+                do {
+                    current = words.get(word);
+                    if ((current & mask) != 0) break;
+                } while (!words.compareAndSet(word, current, current | mask));
+            }
+        }
+
+        boolean mightContain(String email) {
+            long hash1 = hash(email);
+            long hash2 = mix(hash1) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+            }
+            return true;
+        }
+
+        // 64-bit FNV-1a over the chars, then a splitmix64 finalizer
+        private static long hash(String value) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return mix(hash);
+        }
+
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
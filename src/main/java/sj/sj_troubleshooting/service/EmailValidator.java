@@ -0,0 +1,45 @@
+package sj.sj_troubleshooting.service;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Single-pass, allocation-free equivalent of the email regex used across the services:
+ * {@code ^[\w_+-.]+@[\w_+-.]+\.[a-zA-Z]{2,}$}.
+ * Inside that character class {@code +-.} is a range, so the allowed characters are
+ * ASCII letters, digits, '_', '+', ',', '-' and '.'.
+ */
+@Component
+public class EmailValidator {
+
+    public boolean isValid(String email) {
+        if (email == null) return false;
+        int length = email.length();
+        int at = -1;
+        int lastDot = -1;
+        for (int i = 0; i < length; i++) {
+            char c = email.charAt(i);
+            if (c == '@') {
+                if (at >= 0) return false;
+                at = i;
+            } else if (!isAddressChar(c)) {
+                return false;
+            } else if (c == '.' && at >= 0) {
+                lastDot = i;
+            }
+        }
+        // non-empty local part, at least one domain char before the last dot, then 2+ letters
+        if (at < 1 || lastDot < at + 2 || length - lastDot - 1 < 2) return false;
+        for (int i = lastDot + 1; i < length; i++) {
+            if (!isAsciiLetter(email.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private static boolean isAddressChar(char c) {
+        return isAsciiLetter(c) || (c >= '0' && c <= '9') || c == '_' || (c >= '+' && c <= '.');
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
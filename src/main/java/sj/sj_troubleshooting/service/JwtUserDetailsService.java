@@ -1,8 +1,10 @@
 package sj.sj_troubleshooting.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
-import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -10,9 +12,14 @@ import org.springframework.stereotype.Service;
 import sj.sj_troubleshooting.entity.UserEntity;
 import sj.sj_troubleshooting.exception.InvalidEmailFormatException;
 import sj.sj_troubleshooting.repository.UserRepository;
+import sj.sj_troubleshooting.security.JwtUserDetails;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class JwtUserDetailsService implements UserDetailsService {
@@ -20,44 +27,67 @@ public class JwtUserDetailsService implements UserDetailsService {
     @Autowired
     private UserRepository userRepo;
 
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    @Autowired
+    private EmailValidator emailValidator;
+
+    private static final List<GrantedAuthority> ADMIN = List.of(new SimpleGrantedAuthority("ROLE_ADMIN"));
+
+    // emails of the users allowed to run administrative operations such as bulk delete
+    private Set<String> admins = Set.of();
+
+    @Value("${users.admins:}")
+    void setAdmins(String admins) {
+        this.admins = Arrays.stream(admins.split(","))
+                .map(email -> email.trim().toLowerCase(Locale.ROOT))
+                .filter(email -> !email.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        if (!checkEmailValidity(email))
-            throw new InvalidEmailFormatException("Invalid email format");
-
-        Optional<UserEntity> foundUser = userRepo.findByEmail(email);
-//        ArrayList<String> role = new ArrayList<>();
-//        role.add("user");
-        if (foundUser.isPresent()) {
-            return new User(
-                    foundUser.get().getEmail(),
-                    foundUser.get().getPassword(),
-                    new ArrayList<>()
-            );
-        } else {
-            throw new UsernameNotFoundException("User not found with email: " + email);
-        }
+        return loadUserByEmail(email);
     }
 
     public UserDetails loadUserByEmail(String email) {
-        if (!checkEmailValidity(email))
+        if (!emailValidator.isValid(email))
             throw new InvalidEmailFormatException("Invalid email format");
 
+        UserDetailsCache.CachedUser cachedUser = userDetailsCache.get(email);
+        if (cachedUser != null) {
+            return toUserDetails(cachedUser.id(), cachedUser.email(), cachedUser.password());
+        }
+
+        // findByEmail runs in its own read-only transaction, served by the replica if configured; cache hits need none
         Optional<UserEntity> foundUser = userRepo.findByEmail(email);
 //        ArrayList<String> role = new ArrayList<>();
 //        role.add("user");
         if (foundUser.isPresent()) {
-            return new User(
+            userDetailsCache.put(foundUser.get().getId(), foundUser.get().getEmail(), foundUser.get().getPassword());
+            return toUserDetails(
+                    foundUser.get().getId(),
                     foundUser.get().getEmail(),
-                    foundUser.get().getPassword(),
-                    new ArrayList<>()
+                    foundUser.get().getPassword()
             );
         } else {
             throw new UsernameNotFoundException("User not found with email: " + email);
         }
     }
-    protected boolean checkEmailValidity(String email) {
-        return email.matches("^[\\w_+-.]+@[\\w_+-.]+\\.[a-zA-Z]{2,}$");
+
+    // must be called whenever a user's email, password or existence changes
+    public void evictUser(String email) {
+        userDetailsCache.invalidate(email);
+    }
+
+    // roles are not stored with the user, they come from users.admins; the stateless filter uses this too
+    public List<GrantedAuthority> authoritiesOf(String email) {
+        return email != null && admins.contains(email.toLowerCase(Locale.ROOT)) ? ADMIN : List.of();
+    }
+
+    // a new instance every time: Spring Security erases the password of the instance it authenticates
+    private UserDetails toUserDetails(Long id, String email, String password) {
+        return new JwtUserDetails(id, email, password, authoritiesOf(email));
     }
 }
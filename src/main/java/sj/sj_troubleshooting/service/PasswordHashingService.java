@@ -0,0 +1,227 @@
+package sj.sj_troubleshooting.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import sj.sj_troubleshooting.exception.PasswordHashingSaturatedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared BCrypt encoder whose work runs on its own bounded pool, so a burst of logins
+ * or registrations can only use that pool and its queue. When both are full callers get
+ * a PasswordHashingSaturatedException (429) straight away instead of tying up request threads.
+ */
+@Service
+public class PasswordHashingService implements PasswordEncoder {
+    private static final Logger log = LoggerFactory.getLogger(PasswordHashingService.class);
+    private static final long BULK_RETRY_MILLIS = 10;
+
+    @Value("${password.hashing.threads:0}")
+    private int threads;
+
+    @Value("${password.hashing.queueCapacity:64}")
+    private int queueCapacity;
+
+    @Value("${password.bcrypt.strength:4}")
+    private int strength;
+
+    // when > 0 the BCrypt cost is raised at startup until one hash takes at least this long
+    @Value("${password.bcrypt.targetMillis:0}")
+    private long targetMillis;
+
+    @Value("${password.bcrypt.maxStrength:14}")
+    private int maxStrength;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private BCryptPasswordEncoder encoder;
+    private ThreadPoolExecutor executor;
+    private final LongAdder hashCount = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private Timer encodeTimer;
+    private Timer matchesTimer;
+    private Timer bulkEncodeTimer;
+
+    @PostConstruct
+    void init() {
+        if (targetMillis > 0) strength = calibrateStrength();
+        encoder = new BCryptPasswordEncoder(strength);
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        registerMetrics();
+        log.atInfo().addKeyValue("strength", strength).addKeyValue("threads", poolSize)
+                .addKeyValue("queueCapacity", queueCapacity).log("Password hashing pool started");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(encodeTimer, () -> encoder.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(matchesTimer, () -> encoder.matches(rawPassword, encodedPassword));
+    }
+
+    // bulk hashing for imports, on the same pool as logins: at most one hash per pool thread is in flight,
+    // and a full queue makes the import wait instead of failing, so logins keep getting their turn
+    public List<String> encodeAll(List<String> rawPasswords) {
+        int window = executor.getMaximumPoolSize();
+        List<Future<String>> hashes = new ArrayList<>(rawPasswords.size());
+        for (int i = 0; i < rawPasswords.size(); i++) {
+            if (i >= window) await(hashes.get(i - window));
+            CharSequence rawPassword = rawPasswords.get(i);
+            hashes.add(submitWhenAccepted(timed(bulkEncodeTimer, () -> encoder.encode(rawPassword))));
+        }
+        List<String> encoded = new ArrayList<>(hashes.size());
+        for (Future<String> hash : hashes) encoded.add(await(hash));
+        return encoded;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return encoder.upgradeEncoding(encodedPassword);
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    public long getHashCount() {
+        return hashCount.sum();
+    }
+
+    public double getAverageHashMillis() {
+        long count = hashCount.sum();
+        return count == 0 ? 0 : hashNanos.sum() / 1_000_000.0 / count;
+    }
+
+    private <T> T submit(Timer timer, Callable<T> hashing) {
+        Future<T> future;
+        try {
+            future = executor.submit(timed(timer, hashing));
+        } catch (RejectedExecutionException e) {
+            rejectedCount.increment();
+            throw new PasswordHashingSaturatedException("Too many password checks in progress, please retry shortly.");
+        }
+        return await(future);
+    }
+
+    private <T> Future<T> submitWhenAccepted(Callable<T> hashing) {
+        while (true) {
+            try {
+                return executor.submit(hashing);
+            } catch (RejectedExecutionException e) {
+                try {
+                    Thread.sleep(BULK_RETRY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while hashing password", interrupted);
+                }
+            }
+        }
+    }
+
+    // the timer measures the hash itself on the pool thread; queueing shows up in password.hashing.queue
+    private <T> Callable<T> timed(Timer timer, Callable<T> hashing) {
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                return hashing.call();
+            } finally {
+                recordHash(timer, System.nanoTime() - start);
+            }
+        };
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private void recordHash(Timer timer, long nanos) {
+        hashNanos.add(nanos);
+        hashCount.increment();
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void registerMetrics() {
+        encodeTimer = meterRegistry.timer("password.hash", "operation", "encode");
+        matchesTimer = meterRegistry.timer("password.hash", "operation", "matches");
+        bulkEncodeTimer = meterRegistry.timer("password.hash", "operation", "bulk-encode");
+        Gauge.builder("password.hashing.queue", executor, pool -> pool.getQueue().size()).register(meterRegistry);
+        Gauge.builder("password.hashing.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+        Gauge.builder("password.bcrypt.strength", this, service -> service.strength).register(meterRegistry);
+        FunctionCounter.builder("password.hashing.rejected", rejectedCount, LongAdder::sum).register(meterRegistry);
+    }
+
+    // smallest cost between the configured strength and maxStrength reaching the target latency
+    private int calibrateStrength() {
+        int calibrated = strength;
+        while (calibrated < maxStrength) {
+            BCryptPasswordEncoder candidate = new BCryptPasswordEncoder(calibrated);
+            candidate.encode("calibration"); // warm up
+            long start = System.nanoTime();
+            candidate.encode("calibration");
+            if (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= targetMillis) break;
+            calibrated++;
+        }
+        return calibrated;
+    }
+}
@@ -0,0 +1,125 @@
+package sj.sj_troubleshooting.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size- and TTL-bounded cache of the user data needed to build UserDetails, keyed by email.
+ * Only immutable snapshots are stored: callers get a fresh UserDetails on every hit, because
+ * Spring Security erases the password of the UserDetails it authenticated.
+ */
+@Component
+public class UserDetailsCache {
+
+    @Value("${users.detailsCache.maxSize:10000}")
+    private int maxSize;
+
+    @Value("${users.detailsCache.ttlMillis:300000}")
+    private long ttlMillis;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, CachedUser> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public UserDetailsCache() {
+    }
+
+    public UserDetailsCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    // the names Micrometer's own cache binders use, so cache dashboards pick them up
+    @PostConstruct
+    void registerMeters() {
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum).tag("cache", "userDetails").tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum).tag("cache", "userDetails").tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.evictions", evictions, LongAdder::sum).tag("cache", "userDetails")
+                .register(meterRegistry);
+        Gauge.builder("cache.size", entries, Map::size).tag("cache", "userDetails").register(meterRegistry);
+    }
+
+    public CachedUser get(String email) {
+        CachedUser cached = entries.get(email);
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+        if (cached.loadedAt() + ttlMillis <= System.currentTimeMillis()) {
+            if (entries.remove(email, cached)) evictions.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return cached;
+    }
+
+    public void put(Long id, String email, String password) {
+        if (maxSize <= 0) return;
+        if (entries.size() >= maxSize) evictForSpace();
+        entries.put(email, new CachedUser(id, email, password, System.currentTimeMillis()));
+    }
+
+    public void invalidate(String email) {
+        if (email != null) entries.remove(email);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // drop expired entries first, then arbitrary ones until a tenth of the cache is free again,
+    // so a cache full of live entries is not swept on every put
+    private void evictForSpace() {
+        long now = System.currentTimeMillis();
+        Iterator<CachedUser> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().loadedAt() + ttlMillis <= now) {
+                iterator.remove();
+                evictions.increment();
+            }
+        }
+        int target = maxSize - Math.max(1, maxSize / 10);
+        iterator = entries.values().iterator();
+        while (entries.size() > target && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    public record CachedUser(Long id, String email, String password, long loadedAt) {
+    }
+}
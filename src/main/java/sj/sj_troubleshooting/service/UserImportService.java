@@ -0,0 +1,176 @@
+package sj.sj_troubleshooting.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import sj.sj_troubleshooting.dto.RegisterNewUserDTO;
+import sj.sj_troubleshooting.dto.UserImportReportDTO;
+import sj.sj_troubleshooting.entity.UserEntity;
+import sj.sj_troubleshooting.repository.UserRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Bulk user import from NDJSON ({"username":..,"email":..,"password":..} per line) or CSV
+ * (username,email,password). Input is read as a stream and processed in chunks: each chunk is
+ * validated, checked for existing emails with one query, hashed on the password hashing pool and inserted
+ * with JDBC batching in its own transaction. Bad rows are reported and skipped, never abort the import.
+ */
+@Service
+public class UserImportService {
+    private static final Logger log = LoggerFactory.getLogger(UserImportService.class);
+    private static final String CSV_HEADER = "username,email,password";
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private EmailValidator emailValidator;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
+    @Autowired
+    private UserSearchIndex userSearchIndex;
+
+    @Autowired
+    private EmailBloomFilter emailBloomFilter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${users.import.chunkSize:1000}")
+    private int chunkSize;
+
+    public UserImportReportDTO importUsers(InputStream inputStream, boolean csv) throws IOException {
+        UserImportReportDTO report = new UserImportReportDTO();
+        ObjectReader ndjsonReader = objectMapper.readerFor(RegisterNewUserDTO.class);
+        // emails seen earlier in this import, so duplicates across chunks are caught too
+        Set<String> importedEmails = new HashSet<>();
+        List<ImportRow> chunk = new ArrayList<>(chunkSize);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || (csv && lineNumber == 1 && line.trim().equalsIgnoreCase(CSV_HEADER))) continue;
+
+            RegisterNewUserDTO user;
+            try {
+                user = csv ? parseCsv(line) : ndjsonReader.readValue(line);
+            } catch (IOException | IllegalArgumentException e) {
+                report.addFailure(lineNumber, null, "Unparseable row");
+                continue;
+            }
+            chunk.add(new ImportRow(lineNumber, user));
+            if (chunk.size() >= chunkSize) {
+                importChunk(chunk, importedEmails, report);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) importChunk(chunk, importedEmails, report);
+        log.atInfo().addKeyValue("imported", report.getImported()).addKeyValue("failed", report.getFailed())
+                .log("User import finished");
+        return report;
+    }
+
+    private void importChunk(List<ImportRow> chunk, Set<String> importedEmails, UserImportReportDTO report) {
+        List<ImportRow> valid = new ArrayList<>(chunk.size());
+        for (ImportRow row : chunk) {
+            String reason = validate(row.user());
+            if (reason == null && !importedEmails.add(row.user().getEmail())) reason = "Duplicate email in import";
+            if (reason != null) report.addFailure(row.line(), row.user().getEmail(), reason);
+            else valid.add(row);
+        }
+        if (valid.isEmpty()) return;
+
+        // one round trip for the whole chunk instead of a findByEmail per row,
+        // limited to the emails the Bloom filter can't rule out
+        List<String> maybeExisting = valid.stream()
+                .map(row -> row.user().getEmail())
+                .filter(emailBloomFilter::mightContain)
+                .toList();
+        Set<String> existing = maybeExisting.isEmpty()
+                ? Set.of()
+                : new HashSet<>(userRepo.findExistingEmails(maybeExisting));
+        List<ImportRow> toInsert = new ArrayList<>(valid.size());
+        for (ImportRow row : valid) {
+            if (existing.contains(row.user().getEmail())) report.addFailure(row.line(), row.user().getEmail(), "Email already in use");
+            else toInsert.add(row);
+        }
+        if (toInsert.isEmpty()) return;
+
+        List<String> hashes = passwordHashingService.encodeAll(
+                toInsert.stream().map(row -> row.user().getPassword()).toList());
+        List<UserEntity> entities = new ArrayList<>(toInsert.size());
+        for (int i = 0; i < toInsert.size(); i++) {
+            UserEntity entity = new UserEntity();
+            entity.setUsername(toInsert.get(i).user().getUsername());
+            entity.setEmail(toInsert.get(i).user().getEmail());
+            entity.setPassword(hashes.get(i));
+            entities.add(entity);
+        }
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        try {
+            transaction.executeWithoutResult(status -> userRepo.saveAll(entities));
+            entities.forEach(userSearchIndex::add);
+            entities.forEach(entity -> emailBloomFilter.put(entity.getEmail()));
+            report.setImported(report.getImported() + entities.size());
+        } catch (DataIntegrityViolationException e) {
+            // someone registered one of these emails meanwhile: retry row by row to find the offender
+            for (int i = 0; i < entities.size(); i++) {
+                UserEntity entity = entities.get(i);
+                entity.setId(null);
+                try {
+                    transaction.executeWithoutResult(status -> userRepo.save(entity));
+                    userSearchIndex.add(entity);
+                    emailBloomFilter.put(entity.getEmail());
+                    report.setImported(report.getImported() + 1);
+                } catch (DataIntegrityViolationException rowFailure) {
+                    report.addFailure(toInsert.get(i).line(), entity.getEmail(), "Email already in use");
+                }
+            }
+        }
+    }
+
+    private String validate(RegisterNewUserDTO user) {
+        if (user.getUsername() == null || user.getUsername().isBlank()) return "Missing username";
+        if (user.getPassword() == null || user.getPassword().isBlank()) return "Missing password";
+        if (!emailValidator.isValid(user.getEmail())) return "Invalid email format";
+        return null;
+    }
+
+    // password goes last so it may contain commas
+    private RegisterNewUserDTO parseCsv(String line) {
+        String[] columns = line.split(",", 3);
+        if (columns.length != 3) throw new IllegalArgumentException("Expected " + CSV_HEADER);
+        RegisterNewUserDTO user = new RegisterNewUserDTO();
+        user.setUsername(columns[0].trim());
+        user.setEmail(columns[1].trim());
+        user.setPassword(columns[2]);
+        return user;
+    }
+
+    private record ImportRow(long line, RegisterNewUserDTO user) {
+    }
+}
@@ -0,0 +1,35 @@
+package sj.sj_troubleshooting.service;
+
+import sj.sj_troubleshooting.exception.InvalidUserQueryRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Set;
+
+/**
+ * Opaque keyset cursor for /users/query: the sort the page was produced with and the
+ * sort key and id of its last row. The next page starts right after that row.
+ */
+public record UserQueryCursor(String sortField, boolean descending, long lastId, String lastValue) {
+    // cursors come from clients: anything else would let them order and range-scan on any column, e.g. pass
+    static final Set<String> SORT_FIELDS = Set.of("id", "username", "email");
+
+    public String encode() {
+        String raw = sortField + ":" + (descending ? "d" : "a") + ":" + lastId + ":" + lastValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static UserQueryCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            // lastValue goes last and may itself contain ':'
+            String[] parts = raw.split(":", 4);
+            if (parts.length != 4 || !SORT_FIELDS.contains(parts[0]) || !(parts[1].equals("a") || parts[1].equals("d"))) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            return new UserQueryCursor(parts[0], parts[1].equals("d"), Long.parseLong(parts[2]), parts[3]);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidUserQueryRequestException("Invalid Query Request: 'cursor' param is not a valid cursor.");
+        }
+    }
+}
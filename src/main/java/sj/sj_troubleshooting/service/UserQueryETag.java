@@ -0,0 +1,59 @@
+package sj.sj_troubleshooting.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * ETag of a /users/query page: a SHA-256 digest of the query parameters and the page as it is
+ * serialized, ids, names, emails, totals and cursor. It costs no query beyond the page itself, so
+ * keyset pages stay constant cost, and it changes whenever what the client would receive changes,
+ * whichever instance or SQL client wrote the users.
+ */
+@Component
+public class UserQueryETag {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public UserQueryETag() {
+    }
+
+    public UserQueryETag(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public String of(List<?> page, Object... parameters) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(canonical(parameters).getBytes(StandardCharsets.UTF_8));
+            digest.update(objectMapper.writeValueAsBytes(page));
+            return "users-" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("User query page could not be serialized", e);
+        }
+    }
+
+    // length-prefixed, so no two parameter lists share a string: ("a,b", null) vs ("a", "b")
+    static String canonical(Object... parameters) {
+        StringBuilder canonical = new StringBuilder();
+        for (Object parameter : parameters) {
+            if (parameter == null) {
+                canonical.append("-;");
+            } else {
+                String value = parameter.toString();
+                canonical.append(value.length()).append(':').append(value).append(';');
+            }
+        }
+        return canonical.append('\n').toString();
+    }
+}
@@ -0,0 +1,291 @@
+package sj.sj_troubleshooting.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import sj.sj_troubleshooting.dto.UserQueryResultDTO;
+import sj.sj_troubleshooting.entity.UserEntity;
+import sj.sj_troubleshooting.repository.UserRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Optional in-memory trigram index over username and email, used to answer the
+ * LIKE '%term%' searches of /users/query without a full table scan.
+ * Built in the background once the application is ready and kept current by UserService
+ * on register, update and delete. Until it is ready, or for terms it can't answer
+ * (shorter than 3 chars or containing LIKE wildcards), callers fall back to the database.
+ */
+@Component
+public class UserSearchIndex {
+    private static final Logger log = LoggerFactory.getLogger(UserSearchIndex.class);
+    private static final int GRAM_LENGTH = 3;
+    // measured about 700 with 20-char usernames and 35-char emails: the user entry plus ~50 posting ids
+    static final long BYTES_PER_USER = 800;
+    // a write made while the build streams the table, replayed over whatever the build read
+    private static final UserQueryResultDTO REMOVED = new UserQueryResultDTO((Long) null, null, null);
+
+    // switched off for good once the index outgrows maxUsers
+    @Value("${users.searchIndex.enabled:false}")
+    private volatile boolean enabled;
+
+    // above this many users the index switches itself off instead of exhausting the heap;
+    // 0 allows as many as fit in a quarter of the heap at BYTES_PER_USER
+    @Value("${users.searchIndex.maxUsers:0}")
+    private int maxUsers;
+
+    @Autowired
+    private UserRepository userRepo;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final Map<Long, UserQueryResultDTO> users = new ConcurrentHashMap<>();
+    private final Map<Long, Posting> usernameGrams = new ConcurrentHashMap<>();
+    private final Map<Long, Posting> emailGrams = new ConcurrentHashMap<>();
+    private final AtomicBoolean building = new AtomicBoolean();
+    // non-null while the build runs: latest write per user id, REMOVED for deletes; guarded by this
+    private volatile Map<Long, UserQueryResultDTO> writesDuringBuild;
+    private volatile boolean ready;
+
+    @PostConstruct
+    void init() {
+        if (maxUsers <= 0) maxUsers = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 4 / BYTES_PER_USER);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildInBackground() {
+        if (!enabled || !building.compareAndSet(false, true)) return;
+        writesDuringBuild = new HashMap<>();
+        Thread builder = new Thread(this::build, "user-search-index-builder");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    private void build() {
+        log.info("Building user search index");
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        boolean complete = Boolean.TRUE.equals(readOnly.execute(status -> {
+            try (Stream<UserQueryResultDTO> rows = userRepo.streamAllUsers()) {
+                for (UserQueryResultDTO row : (Iterable<UserQueryResultDTO>) rows::iterator) {
+                    if (!enabled || users.size() >= maxUsers) return false;
+                    put(row.getId(), row.getUsername(), row.getEmail());
+                }
+            }
+            return true;
+        }));
+        // a row the build read before a concurrent update or delete must not win over that write
+        synchronized (this) {
+            Map<Long, UserQueryResultDTO> pending = writesDuringBuild;
+            writesDuringBuild = null;
+            if (complete && pending != null) pending.forEach(this::apply);
+        }
+        if (!complete) {
+            disable();
+            return;
+        }
+        ready = true;
+        log.atInfo().addKeyValue("users", users.size()).log("User search index ready");
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    public void add(UserEntity user) {
+        if (!enabled || user.getId() == null) return;
+        // registrations can grow the index past the limit after it was built
+        if (users.size() >= maxUsers && !users.containsKey(user.getId())) {
+            disable();
+            return;
+        }
+        UserQueryResultDTO write = new UserQueryResultDTO(user.getId(), user.getUsername(), user.getEmail());
+        if (!recordDuringBuild(user.getId(), write)) apply(user.getId(), write);
+    }
+
+    public void remove(Long id) {
+        if (!enabled || id == null) return;
+        if (!recordDuringBuild(id, REMOVED)) apply(id, REMOVED);
+    }
+
+    // while the build runs, writes are recorded and applied under the lock its final replay holds,
+    // afterwards they need no lock
+    private boolean recordDuringBuild(Long id, UserQueryResultDTO write) {
+        if (writesDuringBuild == null) return false;
+        synchronized (this) {
+            if (writesDuringBuild == null) return false;
+            writesDuringBuild.put(id, write);
+            apply(id, write);
+            return true;
+        }
+    }
+
+    private void apply(Long id, UserQueryResultDTO write) {
+        if (write == REMOVED) unput(id);
+        else put(id, write.getUsername(), write.getEmail());
+    }
+
+    private void unput(Long id) {
+        users.computeIfPresent(id, (key, previous) -> {
+            unindex(usernameGrams, previous.getUsername(), id);
+            unindex(emailGrams, previous.getEmail(), id);
+            return null;
+        });
+    }
+
+    /**
+     * Resolves LIKE '%username%' AND LIKE '%email%' to the matching users,
+     * or returns null when the index can't answer and the database must be used.
+     */
+    public List<UserQueryResultDTO> search(String username, String email) {
+        if (!isReady() || (username == null && email == null)) return null;
+        if (!isSearchable(username) || !isSearchable(email)) return null;
+
+        // walk the smallest posting list and check every candidate against the actual values
+        Posting.Ids candidates = null;
+        if (username != null) candidates = smallestPosting(usernameGrams, username, candidates);
+        if (email != null) candidates = smallestPosting(emailGrams, email, candidates);
+
+        List<UserQueryResultDTO> matches = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            UserQueryResultDTO user = users.get(candidates.ids()[i]);
+            if (user == null) continue;
+            if (username != null && !user.getUsername().contains(username)) continue;
+            if (email != null && !user.getEmail().contains(email)) continue;
+            matches.add(user);
+        }
+        return matches;
+    }
+
+    private void put(Long id, String username, String email) {
+        UserQueryResultDTO user = new UserQueryResultDTO(id, username, email);
+        users.compute(id, (key, previous) -> {
+            if (previous != null) {
+                unindex(usernameGrams, previous.getUsername(), id);
+                unindex(emailGrams, previous.getEmail(), id);
+            }
+            index(usernameGrams, username, id);
+            index(emailGrams, email, id);
+            return user;
+        });
+    }
+
+    private void disable() {
+        if (!enabled) return;
+        enabled = false;
+        ready = false;
+        log.atWarn().addKeyValue("maxUsers", maxUsers).log("User search index disabled: too many users");
+        clear();
+    }
+
+    private void clear() {
+        users.clear();
+        usernameGrams.clear();
+        emailGrams.clear();
+    }
+
+    // terms shorter than a trigram or using LIKE wildcards are left to the database
+    private boolean isSearchable(String term) {
+        return term == null || (term.length() >= GRAM_LENGTH && term.indexOf('%') < 0 && term.indexOf('_') < 0);
+    }
+
+    private Posting.Ids smallestPosting(Map<Long, Posting> grams, String term, Posting.Ids smallest) {
+        for (int i = 0; i + GRAM_LENGTH <= term.length(); i++) {
+            Posting posting = grams.get(gramKey(term, i));
+            Posting.Ids ids = posting == null ? Posting.Ids.EMPTY : posting.ids();
+            if (smallest == null || ids.size() < smallest.size()) smallest = ids;
+        }
+        return smallest;
+    }
+
+    // postings are only changed inside compute, so writers of one gram never overlap
+    private void index(Map<Long, Posting> grams, String value, Long id) {
+        if (value == null) return;
+        for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+            grams.compute(gramKey(value, i), (key, posting) -> {
+                if (posting == null) posting = new Posting();
+                posting.add(id);
+                return posting;
+            });
+        }
+    }
+
+    private void unindex(Map<Long, Posting> grams, String value, Long id) {
+        if (value == null) return;
+        for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+            grams.computeIfPresent(gramKey(value, i), (key, posting) -> {
+                posting.remove(id);
+                return posting.ids().size() == 0 ? null : posting;
+            });
+        }
+    }
+
+    // three UTF-16 chars packed into one long
+    private static long gramKey(String value, int start) {
+        return ((long) value.charAt(start) << 32) | ((long) value.charAt(start + 1) << 16) | value.charAt(start + 2);
+    }
+
+    /**
+     * Sorted primitive ids of the users containing one trigram: 8 bytes per entry instead of a
+     * boxed Long in a set node. Searches read the published Ids without locking. Ids arrive in
+     * ascending order during the build and from the sequence, so adds append in place past the
+     * published size; inserts in the middle and removals publish a copy, so a search never sees
+     * an entry move.
+     */
+    static final class Posting {
+        private volatile Ids ids = Ids.EMPTY;
+
+        Ids ids() {
+            return ids;
+        }
+
+        void add(long id) {
+            Ids current = ids;
+            long[] array = current.ids();
+            int size = current.size();
+            if (size > 0 && array[size - 1] >= id) {
+                int at = Arrays.binarySearch(array, 0, size, id);
+                if (at >= 0) return;
+                at = -at - 1;
+                long[] copy = new long[Math.max(4, size + 1 + (size >> 3))];
+                System.arraycopy(array, 0, copy, 0, at);
+                copy[at] = id;
+                System.arraycopy(array, at, copy, at + 1, size - at);
+                ids = new Ids(copy, size + 1);
+                return;
+            }
+            if (size == array.length) array = Arrays.copyOf(array, Math.max(4, size + (size >> 1)));
+            array[size] = id;
+            ids = new Ids(array, size + 1);
+        }
+
+        void remove(long id) {
+            Ids current = ids;
+            int at = Arrays.binarySearch(current.ids(), 0, current.size(), id);
+            if (at < 0) return;
+            long[] copy = new long[current.size() - 1];
+            System.arraycopy(current.ids(), 0, copy, 0, at);
+            System.arraycopy(current.ids(), at + 1, copy, at, current.size() - at - 1);
+            ids = new Ids(copy, copy.length);
+        }
+
+        record Ids(long[] ids, int size) {
+            static final Ids EMPTY = new Ids(new long[0], 0);
+        }
+    }
+}
@@ -1,13 +1,25 @@
 package sj.sj_troubleshooting.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -17,8 +29,12 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import sj.sj_troubleshooting.dto.BulkDeleteRequestDTO;
+import sj.sj_troubleshooting.dto.BulkDeleteResultDTO;
 import sj.sj_troubleshooting.dto.JwtRequestModel;
 import sj.sj_troubleshooting.dto.JwtResponseModel;
 import sj.sj_troubleshooting.dto.RegisterNewUserDTO;
@@ -27,15 +43,31 @@ import sj.sj_troubleshooting.dto.UserQueryResultDTO;
 import sj.sj_troubleshooting.entity.UserEntity;
 import sj.sj_troubleshooting.exception.*;
 import sj.sj_troubleshooting.repository.UserRepository;
+import sj.sj_troubleshooting.security.JwtUserDetails;
+import sj.sj_troubleshooting.security.RefreshTokenStore;
 import sj.sj_troubleshooting.security.TokenManager;
+import sj.sj_troubleshooting.security.TokenRevocationStore;
+import sj.sj_troubleshooting.security.TokenVersionRegistry;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
 public class UserService {
+    private static final Logger log = LoggerFactory.getLogger(UserService.class);
+    private static final int BULK_DELETE_CHUNK_SIZE = 500;
 
     @Autowired
     private AuthenticationManager authenticationManager;
@@ -49,26 +81,79 @@ public class UserService {
     @Autowired
     JwtUserDetailsService jwtUserDetailsService;
 
+    @Autowired
+    TokenVersionRegistry tokenVersionRegistry;
+
+    @Autowired
+    RefreshTokenStore refreshTokenStore;
+
+    @Autowired
+    TokenRevocationStore tokenRevocationStore;
+
     @PersistenceContext
     EntityManager entityManager;
 
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    UserSearchIndex userSearchIndex;
+
+    @Autowired
+    EmailValidator emailValidator;
+
+    @Autowired
+    PasswordHashingService passwordHashingService;
+
+    @Autowired
+    EmailBloomFilter emailBloomFilter;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Value("${users.export.flushEvery:1000}")
+    int exportFlushEvery;
+
+    // no surrounding transaction: the duplicate check may read a lagging replica, the unique constraint
+    // checked by the save on the primary is what counts
     public UserEntity registerNewUser(RegisterNewUserDTO userDTO) {
-        if (userRepo.findByEmail(userDTO.getEmail()).isPresent()) {
-            throw new EmailUnavailableException("Entered email is already in use.");
-        }
-        if (!checkEmailValidity(userDTO.getEmail())) {
+        if (!emailValidator.isValid(userDTO.getEmail())) {
             throw new InvalidEmailFormatException("Invalid email format");
         }
+        // the Bloom filter rules out most new emails, only possible duplicates cost a SELECT
+        if (emailBloomFilter.mightContain(userDTO.getEmail()) && userRepo.findByEmail(userDTO.getEmail()).isPresent()) {
+            throw new EmailUnavailableException("Entered email is already in use.");
+        }
         UserEntity user = new UserEntity();
         user.setUsername(userDTO.getUsername());
-        user.setPassword(new BCryptPasswordEncoder(4).encode(userDTO.getPassword()));
+        user.setPassword(passwordHashingService.encode(userDTO.getPassword()));
         user.setEmail(userDTO.getEmail());
 
-        return userRepo.save(user);
+        UserEntity savedUser;
+        try {
+            savedUser = userRepo.save(user);
+        } catch (DataIntegrityViolationException e) {
+            // the unique constraint on users.email is the real guard, e.g. for concurrent signups
+            if (isUniqueViolation(e)) throw new EmailUnavailableException("Entered email is already in use.");
+            throw e;
+        }
+        emailBloomFilter.put(savedUser.getEmail());
+        jwtUserDetailsService.evictUser(savedUser.getEmail());
+        userSearchIndex.add(savedUser);
+        return savedUser;
+    }
+
+    private boolean isUniqueViolation(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                return violation.getKind() == ConstraintViolationException.ConstraintKind.UNIQUE;
+            }
+        }
+        return false;
     }
 
     public JwtResponseModel authenticateLogin(JwtRequestModel request) {
-        if (!checkEmailValidity(request.getEmail()))
+        if (!emailValidator.isValid(request.getEmail()))
             throw new InvalidEmailFormatException("Invalid email format");
         try {
             authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword()));
@@ -78,75 +163,310 @@ public class UserService {
             throw new RuntimeException("INVALID_CREDENTIALS", e);
         }
         final UserDetails userDetails = jwtUserDetailsService.loadUserByEmail(request.getEmail());
-        final String jwtToken = tokenManager.generateJwtToken(userDetails);
-        return new JwtResponseModel(jwtToken);
+        return issueTokens((JwtUserDetails) userDetails);
+    }
+
+    // BCrypt only runs on login, refreshing trades the refresh token for new tokens with a cached user lookup
+    public JwtResponseModel refreshAccessToken(String refreshToken) {
+        RefreshTokenStore.RefreshToken consumed = refreshTokenStore.consume(refreshToken);
+        if (consumed == null) throw new InvalidRefreshTokenException("Invalid or expired refresh token");
+        JwtUserDetails userDetails;
+        try {
+            userDetails = (JwtUserDetails) jwtUserDetailsService.loadUserByEmail(consumed.email());
+        } catch (UsernameNotFoundException e) {
+            throw new InvalidRefreshTokenException("Invalid or expired refresh token");
+        }
+        // a password change since the refresh token was issued ends the session
+        if (!userDetails.getId().equals(consumed.userId())
+                || TokenVersionRegistry.versionOf(userDetails.getPassword()) != consumed.tokenVersion()) {
+            refreshTokenStore.revokeAll(consumed.userId());
+            throw new InvalidRefreshTokenException("Invalid or expired refresh token");
+        }
+        return issueTokens(userDetails);
     }
 
+    // revokes the refresh token and, when the caller still presents it, the access token too
+    public void logout(String refreshToken, String accessToken) {
+        refreshTokenStore.revoke(refreshToken);
+        if (accessToken == null) return;
+        try {
+            Claims claims = tokenManager.getVerifiedClaims(accessToken);
+            tokenRevocationStore.revokeToken(claims.getId(), claims.getExpiration());
+        } catch (JwtException | IllegalArgumentException e) {
+            // expired or invalid access tokens need no revocation
+        }
+    }
+
+    private JwtResponseModel issueTokens(JwtUserDetails userDetails) {
+        String jwtToken = tokenManager.generateJwtToken(userDetails);
+        Instant expiredAt = Instant.now().plusMillis(tokenManager.getTokenValidity());
+        RefreshTokenStore.IssuedRefreshToken refresh = refreshTokenStore.issue(
+                userDetails.getId(), userDetails.getUsername(), TokenVersionRegistry.versionOf(userDetails.getPassword()));
+        return new JwtResponseModel(jwtToken, expiredAt, refresh.token(), refresh.expiresAt());
+    }
+
+    @Transactional(readOnly = true)
     public UserEntity getUserInfo(Long id, Authentication authentication){
-        System.out.println("Authentication: "+ authentication.getName());
+        log.atDebug().addKeyValue("user", authentication.getName()).addKeyValue("id", id).log("User info request");
 
         Optional<UserEntity> requestingUser = userRepo.findByEmail(authentication.getName());
 
 //        Optional<UserEntity> foundUser = userRepo.findById(id);
-        if (!(requestingUser.get().getId() == id)){
+        if (!requestingUser.get().getId().equals(id)){
             throw new DeniedUserInfoRequestException("Error getting user info: User not found or You are unauthorized to get info of user with id: "+id);
         }
         return requestingUser.get();
     }
 
-    public List<?> userQuery(Integer limit, Integer page, String username, String email){
-        // Setup query
-        System.out.println("Setting up query");
-        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        CriteriaQuery<UserQueryResultDTO> cq = cb.createQuery(UserQueryResultDTO.class);
+    // the cheap half of getUserInfo for conditional requests: same access rule, only the version column is read
+    @Transactional(readOnly = true)
+    public long getUserVersion(Long id, Authentication authentication) {
+        Long requesterId = authentication.getPrincipal() instanceof JwtUserDetails user ? user.getId() : null;
+        if (!id.equals(requesterId)) {
+            throw new DeniedUserInfoRequestException("Error getting user info: User not found or You are unauthorized to get info of user with id: "+id);
+        }
+        return userRepo.findVersionById(id).orElseThrow(() -> new DeniedUserInfoRequestException(
+                "Error getting user info: User not found or You are unauthorized to get info of user with id: "+id));
+    }
 
-        Root<UserEntity> user = cq.from(UserEntity.class);
-        cq.select(cb.construct(
-                UserQueryResultDTO.class,
-                user.get("id"),
-                user.get("username"),
-                user.get("email")
-        ));
-        List<Predicate> predicates = new ArrayList<>();
+    // read-only transactions are served by the replica when one is configured
+    @Transactional(readOnly = true)
+    public List<?> userQuery(Integer limit, Integer page, String username, String email, String sort, String order, String cursor){
+        // Validate the request before any SQL runs
+        // Just page number - ERROR
+        if (limit == null && page != null) throw new InvalidUserQueryRequestException(
+                "Invalid Query Request: 'page' param can't be used without 'limit' param.");
+        if ((limit != null && limit <= 0) || (page != null && page <= 0)) {
+            throw new NonPositiveInputException("Page limit must be non-negative and Page number must be positive.");
+        }
+        if (cursor != null) {
+            if (limit == null || page != null) throw new InvalidUserQueryRequestException(
+                    "Invalid Query Request: 'cursor' param needs 'limit' and can't be used with 'page'.");
+            UserQueryCursor after = UserQueryCursor.decode(cursor);
+            // the cursor already knows its sort, explicit sort params must agree with it
+            if ((sort != null && !resolveSortField(sort).equals(after.sortField()))
+                    || (order != null && resolveDescending(order) != after.descending())) {
+                throw new InvalidUserQueryRequestException(
+                        "Invalid Query Request: 'cursor' was issued for a different sort.");
+            }
+            return userQueryAfterCursor(limit, username, email, after);
+        }
+        String sortField = resolveSortField(sort);
+        boolean descending = resolveDescending(order);
 
-        if (username != null) {predicates.add(cb.like(user.get("username"), "%" + username + "%"));}
-        if (email != null) {predicates.add(cb.like(user.get("email"), "%" + email + "%"));}
-        cq.where(predicates.toArray(new Predicate[0]));
+        // Substring searches are answered by the trigram index when it can, the database only serves the page
+        List<UserQueryResultDTO> indexedMatches = userSearchIndex.search(username, email);
+        if (indexedMatches != null) return userQueryFromIndex(indexedMatches, limit, page, sortField, descending);
 
-        TypedQuery<UserQueryResultDTO> query = entityManager.createQuery(cq);
-        List<UserQueryResultDTO> resultList = query.getResultList();
-        resultList.sort(Comparator.comparingLong(UserQueryResultDTO::getId));
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
 
-        System.out.println("Setting up pagination");
-        // Pagination
-        Integer total = resultList.size();
+        // Count matching users in the database instead of loading them all
+        CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+        Root<UserEntity> countRoot = countQuery.from(UserEntity.class);
+        countQuery.select(cb.count(countRoot));
+        countQuery.where(buildQueryPredicates(cb, countRoot, username, email));
+        long total = timedQueryPhase("database", "count", () -> entityManager.createQuery(countQuery).getSingleResult());
+        recordQueryResults("database", total, null);
         if (total == 0) throw new UserNotFoundException("User not found.");
-        // Just page number - ERROR
-        if (limit == null && page != null) throw new InvalidUserQueryRequestException(
-                "Invalid Query Request: 'page' param can't be used without 'limit' param.");
 
         int effectivePage = (page != null) ? page : 1;
-        int effectiveLimit = (limit != null) ? limit : total;
+        int effectiveLimit = (limit != null) ? limit : Math.toIntExact(total);
 
-        if (effectiveLimit <= 0 || effectivePage <= 0) {
-            throw new NonPositiveInputException("Page limit must be non-negative and Page number must be positive.");
+        long start = (long) (effectivePage - 1) * effectiveLimit;
+        if (start >= total) {
+            throw new UserQueryOutOfBoundException("Queried list is beyond result list size: " + total);
         }
 
-        int start = (effectivePage - 1) * effectiveLimit;
+        // Setup page query, sorting and paging are done by the database
+        TypedQuery<UserQueryResultDTO> query = entityManager.createQuery(
+                buildPageQuery(cb, username, email, sortField, descending, null));
+        query.setFirstResult(Math.toIntExact(start));
+        query.setMaxResults(effectiveLimit);
+        List<UserQueryResultDTO> resultList = timedQueryPhase("database", "page", query::getResultList);
+        recordQueryResults("database", null, resultList.size());
+
+        // Build and return the paginated response
+        UserQueryResultDTO pageInfo = new UserQueryResultDTO(effectivePage, effectiveLimit, Math.toIntExact(total));
+        if (start + resultList.size() < total && !resultList.isEmpty()) {
+            pageInfo.setNextCursor(cursorAfter(resultList.get(resultList.size() - 1), sortField, descending));
+        }
+        List<UserQueryResultDTO> retList = new ArrayList<>();
+        retList.add(pageInfo);
+        retList.addAll(resultList);
+        return retList;
+    }
+
+    private List<?> userQueryFromIndex(List<UserQueryResultDTO> matches, Integer limit, Integer page,
+                                       String sortField, boolean descending) {
+        int total = matches.size();
+        recordQueryResults("index", total, null);
+        if (total == 0) throw new UserNotFoundException("User not found.");
+
+        int effectivePage = (page != null) ? page : 1;
+        int effectiveLimit = (limit != null) ? limit : total;
+        long start = (long) (effectivePage - 1) * effectiveLimit;
         if (start >= total) {
             throw new UserQueryOutOfBoundException("Queried list is beyond result list size: " + total);
         }
 
-        int end = Math.min(start + effectiveLimit, total);
+        Comparator<UserQueryResultDTO> comparator = switch (sortField) {
+            case "username" -> Comparator.comparing(UserQueryResultDTO::getUsername);
+            case "email" -> Comparator.comparing(UserQueryResultDTO::getEmail);
+            default -> Comparator.comparing(UserQueryResultDTO::getId);
+        };
+        comparator = comparator.thenComparing(UserQueryResultDTO::getId);
+        Comparator<UserQueryResultDTO> order = descending ? comparator.reversed() : comparator;
+        timedQueryPhase("index", "sort", () -> {
+            matches.sort(order);
+            return matches;
+        });
+        int end = (int) Math.min(start + effectiveLimit, total);
+        List<UserQueryResultDTO> pageMatches = timedQueryPhase("index", "paginate", () -> matches.subList((int) start, end));
+
+        // Only the final page is read from the database, rows deleted meanwhile simply drop out
+        List<Long> pageIds = pageMatches.stream().map(UserQueryResultDTO::getId).toList();
+        Map<Long, UserQueryResultDTO> rows = new HashMap<>();
+        for (UserQueryResultDTO row : timedQueryPhase("index", "page", () -> userRepo.findQueryResultsByIds(pageIds))) {
+            rows.put(row.getId(), row);
+        }
+        recordQueryResults("index", null, rows.size());
 
-        // Build and return the paginated response
+        UserQueryResultDTO pageInfo = new UserQueryResultDTO(effectivePage, effectiveLimit, total);
+        // the next cursor page comes from the database, whose collation can order names differently
+        // from String.compareTo: only id order is the same on both sides
+        if (end < total && "id".equals(sortField)) {
+            pageInfo.setNextCursor(cursorAfter(pageMatches.get(pageMatches.size() - 1), sortField, descending));
+        }
         List<UserQueryResultDTO> retList = new ArrayList<>();
-        retList.add(new UserQueryResultDTO(effectivePage, effectiveLimit, total));
-        retList.addAll(resultList.subList(start, end));
+        retList.add(pageInfo);
+        for (Long id : pageIds) {
+            if (rows.containsKey(id)) retList.add(rows.get(id));
+        }
+        return retList;
+    }
+
+    // Keyset paging: every page is a range scan starting after the cursor row, no rows are skipped
+    // and no total is counted, so deep pages cost the same as the first one
+    private List<?> userQueryAfterCursor(int limit, String username, String email, UserQueryCursor after) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        TypedQuery<UserQueryResultDTO> query = entityManager.createQuery(
+                buildPageQuery(cb, username, email, after.sortField(), after.descending(), after));
+        // one extra row tells whether there is a next page
+        query.setMaxResults(limit + 1);
+        List<UserQueryResultDTO> resultList = timedQueryPhase("cursor", "page", query::getResultList);
+
+        UserQueryResultDTO pageInfo = new UserQueryResultDTO(null, limit, null);
+        if (resultList.size() > limit) {
+            resultList = resultList.subList(0, limit);
+            pageInfo.setNextCursor(cursorAfter(resultList.get(limit - 1), after.sortField(), after.descending()));
+        }
+        recordQueryResults("cursor", null, resultList.size());
+        List<UserQueryResultDTO> retList = new ArrayList<>();
+        retList.add(pageInfo);
+        retList.addAll(resultList);
         return retList;
     }
 
+    // users.query timer, tagged by how the query was answered (database, index, cursor) and the phase
+    private <T> T timedQueryPhase(String path, String phase, Supplier<T> work) {
+        return meterRegistry.timer("users.query", "path", path, "phase", phase).record(work);
+    }
+
+    // matching users before paging and rows actually returned, either may be null when unknown
+    private void recordQueryResults(String path, Number matches, Number returned) {
+        if (matches != null) meterRegistry.summary("users.query.matches", "path", path).record(matches.doubleValue());
+        if (returned != null) meterRegistry.summary("users.query.returned", "path", path).record(returned.doubleValue());
+    }
 
+    private CriteriaQuery<UserQueryResultDTO> buildPageQuery(CriteriaBuilder cb, String username, String email,
+                                                             String sortField, boolean descending, UserQueryCursor after) {
+        CriteriaQuery<UserQueryResultDTO> cq = cb.createQuery(UserQueryResultDTO.class);
+        Root<UserEntity> user = cq.from(UserEntity.class);
+        cq.select(cb.construct(
+                UserQueryResultDTO.class,
+                user.get("id"),
+                user.get("username"),
+                user.get("email")
+        ));
+        List<Predicate> predicates = new ArrayList<>(List.of(buildQueryPredicates(cb, user, username, email)));
+        if (after != null) predicates.add(buildKeysetPredicate(cb, user, after));
+        cq.where(predicates.toArray(new Predicate[0]));
+
+        List<Order> orderBy = new ArrayList<>();
+        orderBy.add(descending ? cb.desc(user.get(sortField)) : cb.asc(user.get(sortField)));
+        // id breaks ties so pages are stable when sorting on a non-unique column
+        if (!sortField.equals("id")) orderBy.add(descending ? cb.desc(user.get("id")) : cb.asc(user.get("id")));
+        cq.orderBy(orderBy);
+        return cq;
+    }
+
+    // (sortKey, id) strictly after the cursor row in the requested direction
+    private Predicate buildKeysetPredicate(CriteriaBuilder cb, Root<UserEntity> user, UserQueryCursor after) {
+        Path<Long> id = user.get("id");
+        Predicate idAfter = after.descending() ? cb.lessThan(id, after.lastId()) : cb.greaterThan(id, after.lastId());
+        if (after.sortField().equals("id")) return idAfter;
+
+        Path<String> sortKey = user.get(after.sortField());
+        Predicate keyAfter = after.descending()
+                ? cb.lessThan(sortKey, after.lastValue())
+                : cb.greaterThan(sortKey, after.lastValue());
+        return cb.or(keyAfter, cb.and(cb.equal(sortKey, after.lastValue()), idAfter));
+    }
+
+    private String cursorAfter(UserQueryResultDTO lastRow, String sortField, boolean descending) {
+        String lastValue = switch (sortField) {
+            case "username" -> lastRow.getUsername();
+            case "email" -> lastRow.getEmail();
+            default -> "";
+        };
+        return new UserQueryCursor(sortField, descending, lastRow.getId(), lastValue).encode();
+    }
+
+    private Predicate[] buildQueryPredicates(CriteriaBuilder cb, Root<UserEntity> user, String username, String email) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (username != null) {predicates.add(cb.like(user.get("username"), "%" + username + "%"));}
+        if (email != null) {predicates.add(cb.like(user.get("email"), "%" + email + "%"));}
+        return predicates.toArray(new Predicate[0]);
+    }
+
+    private String resolveSortField(String sort) {
+        if (sort == null) return "id";
+        return switch (sort) {
+            case "id", "username", "email" -> sort;
+            default -> throw new InvalidUserQueryRequestException(
+                    "Invalid Query Request: 'sort' param must be one of id, username, email.");
+        };
+    }
+
+    private boolean resolveDescending(String order) {
+        if (order == null || order.equalsIgnoreCase("asc")) return false;
+        if (order.equalsIgnoreCase("desc")) return true;
+        throw new InvalidUserQueryRequestException("Invalid Query Request: 'order' param must be asc or desc.");
+    }
+
+
+    // Writes every user as one JSON object per line while rows are still being read,
+    // so heap use does not depend on the number of users
+    @Transactional(readOnly = true)
+    public long exportUsers(OutputStream outputStream) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(UserQueryResultDTO.class);
+        OutputStream out = new BufferedOutputStream(outputStream, 64 * 1024);
+        long written = 0;
+        try (Stream<UserQueryResultDTO> users = userRepo.streamAllUsers()) {
+            Iterator<UserQueryResultDTO> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                out.write(writer.writeValueAsBytes(iterator.next()));
+                out.write('\n');
+                if (++written % exportFlushEvery == 0) out.flush();
+            }
+        }
+        out.flush();
+        return written;
+    }
+
+
+    // one read-write transaction, so the user is read from the primary and not from a lagging replica
+    @Transactional
     public UserEntity updateUserWithAsymmetricKeys(Long userId, UpdateUserDTO updateUserDTO, Authentication authentication) {
         // Validate the update request
         validateUpdateRequest(updateUserDTO);
@@ -180,23 +500,114 @@ public class UserService {
             userToUpdate.setPassword(encryptedPassword);
         }
         
-        return userRepo.save(userToUpdate);
+        UserEntity savedUser = userRepo.save(userToUpdate);
+        boolean passwordChanged = updateUserDTO.getPassword() != null;
+        afterCommit(() -> {
+            jwtUserDetailsService.evictUser(savedUser.getEmail());
+            userSearchIndex.add(savedUser);
+            // a new password changes the token version, so older tokens stop working in stateless mode
+            tokenVersionRegistry.update(savedUser);
+            if (passwordChanged) {
+                refreshTokenStore.revokeAll(savedUser.getId());
+                tokenRevocationStore.revokeAllFor(savedUser.getId());
+            }
+        });
+        return savedUser;
     }
     
 
+    @Transactional
     public boolean deleteUser(String email){
         Optional<UserEntity> userToDelete = userRepo.findByEmail(email);
         if (userToDelete.isEmpty()) {
-            System.out.println("User not found");
+            log.atDebug().addKeyValue("email", email).log("User to delete not found");
             return false;
         }
         userRepo.delete(userToDelete.get());
+        Long id = userToDelete.get().getId();
+        afterCommit(() -> {
+            emailBloomFilter.recordDeletions(1);
+            jwtUserDetailsService.evictUser(email);
+            userSearchIndex.remove(id);
+            tokenVersionRegistry.evict(id);
+            refreshTokenStore.revokeAll(id);
+            tokenRevocationStore.revokeAllFor(id);
+        });
         return true;
     }
 
-    protected boolean checkEmailValidity(String email) {
-        return email.matches("^[\\w_+-.]+@[\\w_+-.]+\\.[a-zA-Z]{2,}$");
+    // caches, the search index and token state follow the database: evicting before the commit would let a
+    // concurrent lookup re-cache the old row, and a rollback would leave them ahead of it
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // Set-based delete: per chunk one lookup of the existing rows and one DELETE ... WHERE id IN (...),
+    // all chunks in a single transaction
+    @Transactional
+    public List<BulkDeleteResultDTO> bulkDeleteUsers(BulkDeleteRequestDTO request) {
+        List<BulkDeleteResultDTO> results = new ArrayList<>();
+        List<String> emails = request.getEmails() != null ? request.getEmails().stream().distinct().toList() : List.of();
+        List<Long> ids = request.getIds() != null ? request.getIds().stream().distinct().toList() : List.of();
+        // a user listed both by email and by id is already gone when the ids are looked up
+        Map<Long, UserQueryResultDTO> deleted = new HashMap<>();
+
+        for (int from = 0; from < emails.size(); from += BULK_DELETE_CHUNK_SIZE) {
+            List<String> chunk = emails.subList(from, Math.min(from + BULK_DELETE_CHUNK_SIZE, emails.size()));
+            Map<String, UserQueryResultDTO> found = new HashMap<>();
+            for (UserQueryResultDTO user : userRepo.findQueryResultsByEmails(chunk)) found.put(user.getEmail(), user);
+            deleteFound(found.values());
+            for (UserQueryResultDTO user : found.values()) deleted.put(user.getId(), user);
+            for (String email : chunk) {
+                UserQueryResultDTO user = found.get(email);
+                results.add(user != null
+                        ? new BulkDeleteResultDTO(user.getId(), email, "DELETED")
+                        : new BulkDeleteResultDTO(null, email, "NOT_FOUND"));
+            }
+        }
+        for (int from = 0; from < ids.size(); from += BULK_DELETE_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + BULK_DELETE_CHUNK_SIZE, ids.size()));
+            List<Long> remaining = chunk.stream().filter(id -> !deleted.containsKey(id)).toList();
+            Map<Long, UserQueryResultDTO> found = new HashMap<>();
+            if (!remaining.isEmpty()) {
+                for (UserQueryResultDTO user : userRepo.findQueryResultsByIds(remaining)) found.put(user.getId(), user);
+            }
+            deleteFound(found.values());
+            for (Long id : chunk) {
+                UserQueryResultDTO user = found.getOrDefault(id, deleted.get(id));
+                results.add(user != null
+                        ? new BulkDeleteResultDTO(id, user.getEmail(), "DELETED")
+                        : new BulkDeleteResultDTO(id, null, "NOT_FOUND"));
+            }
+        }
+        return results;
+    }
+
+    private void deleteFound(Collection<UserQueryResultDTO> users) {
+        if (users.isEmpty()) return;
+        userRepo.deleteAllByIds(users.stream().map(UserQueryResultDTO::getId).toList());
+        List<UserQueryResultDTO> removed = List.copyOf(users);
+        afterCommit(() -> {
+            emailBloomFilter.recordDeletions(removed.size());
+            for (UserQueryResultDTO user : removed) {
+                jwtUserDetailsService.evictUser(user.getEmail());
+                userSearchIndex.remove(user.getId());
+                tokenVersionRegistry.evict(user.getId());
+                refreshTokenStore.revokeAll(user.getId());
+                tokenRevocationStore.revokeAllFor(user.getId());
+            }
+        });
     }
+
     private void validateUpdateRequest(UpdateUserDTO updateUserDTO) {
         if (updateUserDTO == null) {
             throw new IllegalArgumentException("Update request cannot be null");
@@ -223,7 +634,7 @@ public class UserService {
     private String encryptPasswordWithAsymmetricKey(String plainPassword) {
         // Enhanced password encryption using asymmetric keys
         // First, encrypt with BCrypt for secure hashing
-        String bcryptHash = new BCryptPasswordEncoder(4).encode(plainPassword);
+        String bcryptHash = passwordHashingService.encode(plainPassword);
 
         // Additional layer: We could add RSA encryption here if needed
         // For now, we'll use BCrypt as it's already very secure
@@ -0,0 +1,63 @@
+package sj.sj_troubleshooting.bulkhead;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkheadFilterTest {
+
+    private BulkheadFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new BulkheadFilter();
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "meterRegistry", new SimpleMeterRegistry());
+        for (String name : new String[]{"auth", "lookup", "search"}) {
+            ReflectionTestUtils.setField(filter, name + "MaxConcurrent", 1);
+        }
+        filter.init();
+    }
+
+    private MockHttpServletRequest request(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setServletPath(path);
+        request.setAsyncSupported(true);
+        return request;
+    }
+
+    @Test
+    void testRequestsAreSortedIntoBulkheads() {
+        assertEquals("auth", filter.bulkheadFor("/auth/login").getName());
+        assertEquals("search", filter.bulkheadFor("/users/query").getName());
+        assertEquals("search", filter.bulkheadFor("/users/export").getName());
+        assertEquals("lookup", filter.bulkheadFor("/users/42").getName());
+    }
+
+    @Test
+    void testFullSearchBulkheadRejectsWith503ButAuthStillPasses() throws Exception {
+        // an export still streaming holds the only search slot
+        MockHttpServletRequest export = request("/users/export");
+        filter.doFilter(export, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+        assertEquals(1, filter.bulkheadFor("/users/export").getActive());
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(request("/users/query"), rejected, (req, res) -> fail("must not reach the controller"));
+        assertEquals(503, rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+
+        MockHttpServletResponse login = new MockHttpServletResponse();
+        filter.doFilter(request("/auth/login"), login, (req, res) -> {});
+        assertEquals(200, login.getStatus());
+        assertEquals(0, filter.bulkheadFor("/auth/login").getActive());
+
+        // the slot is freed only when the async request completes
+        export.getAsyncContext().complete();
+        assertEquals(0, filter.bulkheadFor("/users/export").getActive());
+    }
+}
@@ -0,0 +1,72 @@
+package sj.sj_troubleshooting.bulkhead;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkheadTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void testRejectsBeyondMaxConcurrentWithoutQueue() throws InterruptedException {
+        Bulkhead bulkhead = new Bulkhead("search", 2, 0, 0, meterRegistry);
+
+        assertTrue(bulkhead.tryEnter());
+        assertTrue(bulkhead.tryEnter());
+        assertFalse(bulkhead.tryEnter());
+        assertEquals(2, bulkhead.getActive());
+        assertEquals(1.0, meterRegistry.get("bulkhead.rejected").tag("name", "search").counter().count());
+
+        bulkhead.release();
+        assertTrue(bulkhead.tryEnter());
+    }
+
+    @Test
+    void testQueuedRequestGetsReleasedSlot() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("lookup", 1, 1, 5000, meterRegistry);
+        assertTrue(bulkhead.tryEnter());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> queued = executor.submit(bulkhead::tryEnter);
+            while (bulkhead.getWaiting() == 0) Thread.sleep(1);
+            // the queue holds one request, the next one fails fast
+            assertFalse(bulkhead.tryEnter());
+
+            bulkhead.release();
+            assertTrue(queued.get(5, TimeUnit.SECONDS));
+            assertEquals(0, bulkhead.getWaiting());
+            assertEquals(1, bulkhead.getActive());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testFullBulkheadDoesNotBlockAnother() throws Exception {
+        Bulkhead search = new Bulkhead("search", 1, 10, 60_000, meterRegistry);
+        Bulkhead auth = new Bulkhead("auth", 1, 0, 0, meterRegistry);
+        assertTrue(search.tryEnter());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch started = new CountDownLatch(1);
+        try {
+            executor.submit(() -> {
+                started.countDown();
+                return search.tryEnter();
+            });
+            started.await();
+            assertTrue(auth.tryEnter());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package sj.sj_troubleshooting.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.context.request.ServletWebRequest;
+import sj.sj_troubleshooting.dto.UserQueryResultDTO;
+import sj.sj_troubleshooting.entity.UserEntity;
+import sj.sj_troubleshooting.service.UserQueryETag;
+import sj.sj_troubleshooting.service.UserService;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserControllerETagTest {
+
+    @Mock
+    private UserService userService;
+
+    @Spy
+    private UserQueryETag userQueryETag = new UserQueryETag(new ObjectMapper());
+
+    @Mock
+    private Authentication authentication;
+
+    @InjectMocks
+    private UserController userController;
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    private ServletWebRequest request(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/users/1");
+        if (ifNoneMatch != null) request.addHeader("If-None-Match", ifNoneMatch);
+        return new ServletWebRequest(request, response);
+    }
+
+    @Test
+    void testGetUserWithCurrentETagIsNotModifiedAndNotLoaded() {
+        when(userService.getUserVersion(1L, authentication)).thenReturn(3L);
+
+        assertNull(userController.getUser(1L, authentication, request("\"user-1-3\"")));
+
+        assertEquals(304, response.getStatus());
+        verify(userService, never()).getUserInfo(any(), any());
+    }
+
+    @Test
+    void testGetUserWithStaleETagLoadsTheUser() {
+        UserEntity user = new UserEntity();
+        user.setId(1L);
+        user.setVersion(4L);
+        when(userService.getUserVersion(1L, authentication)).thenReturn(4L);
+        when(userService.getUserInfo(1L, authentication)).thenReturn(user);
+
+        ResponseEntity<UserEntity> result = userController.getUser(1L, authentication, request("\"user-1-3\""));
+
+        assertEquals(200, result.getStatusCode().value());
+        assertEquals("\"user-1-4\"", result.getHeaders().getETag());
+        assertSame(user, result.getBody());
+    }
+
+    private List<UserQueryResultDTO> page(String username) {
+        return List.of(new UserQueryResultDTO(1, 10, 1), new UserQueryResultDTO(1L, username, "user1@example.com"));
+    }
+
+    @Test
+    void testQueryWithCurrentETagIsNotModified() {
+        doReturn(page("user1")).when(userService).userQuery(10, 1, "user", null, null, null, null);
+        String eTag = userQueryETag.of(page("user1"), "user", null, 10, 1, null, null, null);
+
+        assertNull(userController.queryUser("user", null, 10, 1, null, null, null, request("\"" + eTag + "\"")));
+
+        assertEquals(304, response.getStatus());
+    }
+
+    @Test
+    void testQueryWithChangedPageReturnsIt() {
+        String stale = userQueryETag.of(page("user1"), "user", null, 10, 1, null, null, null);
+        doReturn(page("renamed")).when(userService).userQuery(10, 1, "user", null, null, null, null);
+
+        ResponseEntity<?> result = userController.queryUser("user", null, 10, 1, null, null, null, request("\"" + stale + "\""));
+
+        assertEquals(200, result.getStatusCode().value());
+        assertEquals(page("renamed"), result.getBody());
+        assertNotEquals("\"" + stale + "\"", result.getHeaders().getETag());
+    }
+}
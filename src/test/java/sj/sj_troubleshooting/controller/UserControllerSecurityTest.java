@@ -0,0 +1,85 @@
+package sj.sj_troubleshooting.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import sj.sj_troubleshooting.repository.UserRepository;
+import sj.sj_troubleshooting.security.SecurityConfig;
+import sj.sj_troubleshooting.security.TokenManager;
+import sj.sj_troubleshooting.security.TokenRevocationStore;
+import sj.sj_troubleshooting.security.TokenVersionRegistry;
+import sj.sj_troubleshooting.service.JwtUserDetailsService;
+import sj.sj_troubleshooting.service.PasswordHashingService;
+import sj.sj_troubleshooting.service.UserImportService;
+import sj.sj_troubleshooting.service.UserQueryETag;
+import sj.sj_troubleshooting.service.UserService;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// the application's SecurityConfig in front of UserController, users come from @WithMockUser
+@WebMvcTest(UserController.class)
+@Import(SecurityConfig.class)
+class UserControllerSecurityTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private UserService userService;
+    @MockitoBean
+    private UserImportService userImportService;
+    @MockitoBean
+    private UserQueryETag userQueryETag;
+    @MockitoBean
+    private JwtUserDetailsService jwtUserDetailsService;
+    @MockitoBean
+    private PasswordHashingService passwordHashingService;
+    @MockitoBean
+    private TokenManager tokenManager;
+    @MockitoBean
+    private UserRepository userRepository;
+    @MockitoBean
+    private TokenVersionRegistry tokenVersionRegistry;
+    @MockitoBean
+    private TokenRevocationStore tokenRevocationStore;
+
+    private static final String REQUEST = "{\"emails\":[\"a@example.com\"]}";
+
+    @Test
+    @WithMockUser(username = "user@example.com")
+    void testBulkDeleteIsForbiddenToUsers() throws Exception {
+        mockMvc.perform(delete("/users/bulk-delete").contentType(MediaType.APPLICATION_JSON).content(REQUEST))
+                .andExpect(status().isForbidden());
+        verify(userService, never()).bulkDeleteUsers(any());
+    }
+
+    @Test
+    @WithMockUser(username = "admin@example.com", roles = "ADMIN")
+    void testBulkDeleteIsAllowedToAdmins() throws Exception {
+        when(userService.bulkDeleteUsers(any())).thenReturn(List.of());
+        mockMvc.perform(delete("/users/bulk-delete").contentType(MediaType.APPLICATION_JSON).content(REQUEST))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,101 @@
+package sj.sj_troubleshooting.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// two embedded H2 databases that each know their own name
+class ReplicaRoutingDataSourceTest {
+
+    private EmbeddedDatabase primary;
+    private EmbeddedDatabase replica;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replica = database("replica");
+    }
+
+    @AfterEach
+    void tearDown() {
+        primary.shutdown();
+        replica.shutdown();
+    }
+
+    private static EmbeddedDatabase database(String name) {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        JdbcTemplate jdbc = new JdbcTemplate(database);
+        jdbc.execute("create table node (name varchar(16))");
+        jdbc.update("insert into node values (?)", name);
+        return database;
+    }
+
+    private String nodeOf(DataSource routing, boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(routing));
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status -> new JdbcTemplate(routing).queryForObject("select name from node", String.class));
+    }
+
+    private DataSource routing(DataSource replicaDataSource, ReplicaHealthMonitor monitor) {
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replicaDataSource, monitor));
+    }
+
+    @Test
+    void testReadOnlyTransactionsUseReplicaEverythingElsePrimary() {
+        ReplicaHealthMonitor monitor = new ReplicaHealthMonitor(replica, "", 5000);
+        monitor.check();
+        DataSource routing = routing(replica, monitor);
+
+        assertEquals("replica", nodeOf(routing, true));
+        assertEquals("primary", nodeOf(routing, false));
+        // no transaction at all
+        assertEquals("primary", new JdbcTemplate(routing).queryForObject("select name from node", String.class));
+    }
+
+    @Test
+    void testLaggingReplicaFallsBackToPrimary() {
+        ReplicaHealthMonitor monitor = new ReplicaHealthMonitor(replica, "select 10000", 5000);
+        monitor.check();
+
+        assertFalse(monitor.isAvailable());
+        assertEquals(10000, monitor.getLagMillis());
+        assertEquals("primary", nodeOf(routing(replica, monitor), true));
+    }
+
+    @Test
+    void testUnreachableReplicaFallsBackToPrimary() {
+        DataSource down = new DriverManagerDataSource("jdbc:h2:tcp://localhost:1/unreachable");
+        ReplicaHealthMonitor monitor = new ReplicaHealthMonitor(down, "", 5000);
+        monitor.check();
+        assertFalse(monitor.isAvailable());
+        assertEquals("primary", nodeOf(routing(down, monitor), true));
+    }
+
+    @Test
+    void testReplicaFailingOnRequestPathIsMarkedDownUntilNextCheck() {
+        ReplicaHealthMonitor monitor = new ReplicaHealthMonitor(replica, "", 5000);
+        monitor.check();
+        assertTrue(monitor.isAvailable());
+
+        // the monitor last saw a healthy replica, but connections to it now fail
+        DataSource down = new DriverManagerDataSource("jdbc:h2:tcp://localhost:1/unreachable");
+        assertEquals("primary", nodeOf(routing(down, monitor), true));
+        assertFalse(monitor.isAvailable());
+
+        monitor.check();
+        assertTrue(monitor.isAvailable());
+        assertEquals("replica", nodeOf(routing(replica, monitor), true));
+    }
+}
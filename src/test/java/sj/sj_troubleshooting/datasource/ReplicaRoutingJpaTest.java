@@ -0,0 +1,116 @@
+package sj.sj_troubleshooting.datasource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import sj.sj_troubleshooting.entity.UserEntity;
+import sj.sj_troubleshooting.repository.UserRepository;
+import sj.sj_troubleshooting.service.EmailValidator;
+import sj.sj_troubleshooting.service.JwtUserDetailsService;
+import sj.sj_troubleshooting.service.UserDetailsCache;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// the app's replica config, JpaTransactionManager and repositories over two H2 databases holding
+// the same user with a different password hash, so each read shows which database answered it
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+        "spring.datasource.replica.url=jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1",
+        "spring.datasource.replica.checkMillis=600000",
+        "spring.jpa.hibernate.ddl-auto=create-drop"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ReplicaDataSourceConfig.class, JwtUserDetailsService.class, UserDetailsCache.class, EmailValidator.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReplicaRoutingJpaTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtUserDetailsService jwtUserDetailsService;
+
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    @Autowired
+    private ReplicaHealthMonitor replicaHealthMonitor;
+
+    @Autowired
+    @Qualifier("primary")
+    private DataSource primary;
+
+    @Autowired
+    @Qualifier("replica")
+    private DataSource replica;
+
+    private JdbcTemplate replicaJdbc;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        userDetailsCache.clear();
+        replicaHealthMonitor.check();
+
+        replicaJdbc = new JdbcTemplate(replica);
+        replicaJdbc.execute("drop table if exists users");
+        replicaJdbc.execute("create table users (userid bigint primary key, username varchar(255) not null, "
+                + "pass varchar(255) not null, email varchar(255) not null unique, version bigint not null)");
+        UserEntity user = new UserEntity();
+        user.setUsername("user");
+        user.setEmail("user@example.com");
+        user.setPassword("primary-hash");
+        user = userRepository.save(user);
+        replicaJdbc.update("insert into users values (?, 'user', 'replica-hash', 'user@example.com', 0)", user.getId());
+    }
+
+    @Test
+    void testUserLookupForAuthenticationReadsTheReplica() {
+        assertTrue(replicaHealthMonitor.isAvailable());
+        assertEquals("replica-hash", jwtUserDetailsService.loadUserByEmail("user@example.com").getPassword());
+        assertEquals("replica-hash", userRepository.findByEmail("user@example.com").orElseThrow().getPassword());
+    }
+
+    @Test
+    void testWritesGoToThePrimary() {
+        UserEntity user = new UserEntity();
+        user.setUsername("other");
+        user.setEmail("other@example.com");
+        user.setPassword("primary-hash");
+        userRepository.save(user);
+
+        String count = "select count(*) from users where email = 'other@example.com'";
+        assertEquals(1, new JdbcTemplate(primary).queryForObject(count, Integer.class));
+        assertEquals(0, replicaJdbc.queryForObject(count, Integer.class));
+        // reads keep going to the replica, which has not seen the new user
+        assertTrue(userRepository.findByEmail("other@example.com").isEmpty());
+    }
+
+    @Test
+    void testLookupFallsBackToThePrimaryWhileTheReplicaIsDown() {
+        replicaHealthMonitor.markDown(new SQLException("replica down"));
+
+        assertEquals("primary-hash", jwtUserDetailsService.loadUserByEmail("user@example.com").getPassword());
+    }
+}
@@ -0,0 +1,36 @@
+package sj.sj_troubleshooting.exception;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import sj.sj_troubleshooting.controller.AuthController;
+import sj.sj_troubleshooting.service.UserService;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class GlobalExceptionHandlerTest {
+
+    @Test
+    void testSaturatedHashingPoolAnswers429WithRetryAfter() throws Exception {
+        UserService userService = mock(UserService.class);
+        when(userService.authenticateLogin(any()))
+                .thenThrow(new PasswordHashingSaturatedException("Too many password checks in progress, please retry shortly."));
+        AuthController authController = new AuthController();
+        ReflectionTestUtils.setField(authController, "userService", userService);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(authController)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+
+        mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"user@example.com\",\"password\":\"secret\"}"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(content().string("Too many password checks in progress, please retry shortly."));
+    }
+}
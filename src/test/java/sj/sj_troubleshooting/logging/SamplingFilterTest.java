@@ -0,0 +1,38 @@
+package sj.sj_troubleshooting.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SamplingFilterTest {
+
+    private LoggingEvent event(String loggerName, Level level) {
+        LoggingEvent event = new LoggingEvent();
+        event.setLoggerName(loggerName);
+        event.setLevel(level);
+        return event;
+    }
+
+    @Test
+    void testLongestPrefixDecidesTheRate() {
+        SamplingFilter filter = new SamplingFilter();
+        filter.addCategory("sj.sj_troubleshooting=1.0");
+        filter.addCategory("sj.sj_troubleshooting.security=0");
+
+        assertEquals(FilterReply.DENY, filter.decide(event("sj.sj_troubleshooting.security.TokenManager", Level.DEBUG)));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(event("sj.sj_troubleshooting.service.UserService", Level.DEBUG)));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(event("org.hibernate.SQL", Level.DEBUG)));
+    }
+
+    @Test
+    void testWarningsAreNeverSampled() {
+        SamplingFilter filter = new SamplingFilter();
+        filter.addCategory("sj.sj_troubleshooting.security=0");
+
+        assertEquals(FilterReply.NEUTRAL, filter.decide(event("sj.sj_troubleshooting.security.TokenManager", Level.WARN)));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(event("sj.sj_troubleshooting.security.TokenManager", Level.ERROR)));
+    }
+}
@@ -0,0 +1,65 @@
+package sj.sj_troubleshooting.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserSchemaCheckTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbc;
+    private UserSchemaCheck schemaCheck;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbc = new JdbcTemplate(database);
+        schemaCheck = new UserSchemaCheck();
+        ReflectionTestUtils.setField(schemaCheck, "dataSource", database);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void passesOnMigratedSchema() {
+        jdbc.execute("create sequence users_userid_seq increment by 50");
+        jdbc.execute("create table users (userid bigint primary key, version bigint not null default 0)");
+
+        assertDoesNotThrow(schemaCheck::check);
+    }
+
+    @Test
+    void failsWhenSequenceIncrementDiffersFromAllocationSize() {
+        jdbc.execute("create sequence users_userid_seq increment by 1");
+        jdbc.execute("create table users (userid bigint primary key, version bigint not null default 0)");
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, schemaCheck::check);
+        assertTrue(e.getMessage().contains("ALTER SEQUENCE users_userid_seq INCREMENT BY 50"), e.getMessage());
+    }
+
+    @Test
+    void failsWhenSequenceIsMissing() {
+        jdbc.execute("create table users (userid bigint primary key, version bigint not null default 0)");
+
+        assertThrows(IllegalStateException.class, schemaCheck::check);
+    }
+
+    @Test
+    void failsWhenVersionColumnIsMissing() {
+        jdbc.execute("create sequence users_userid_seq increment by 50");
+        jdbc.execute("create table users (userid bigint primary key)");
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, schemaCheck::check);
+        assertTrue(e.getMessage().contains("ALTER TABLE users ADD COLUMN version"), e.getMessage());
+    }
+}
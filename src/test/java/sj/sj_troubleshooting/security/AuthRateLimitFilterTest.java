@@ -0,0 +1,108 @@
+package sj.sj_troubleshooting.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthRateLimitFilterTest {
+
+    private AuthRateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new AuthRateLimitFilter();
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "maxKeys", 1000);
+        ReflectionTestUtils.setField(filter, "loginIpPerMinute", 100);
+        ReflectionTestUtils.setField(filter, "loginEmailPerMinute", 2);
+        ReflectionTestUtils.setField(filter, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(filter, "meterRegistry", new SimpleMeterRegistry());
+        filter.init();
+    }
+
+    private MockHttpServletResponse login(String remoteAddr, String body) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/login");
+        request.setServletPath("/auth/login");
+        request.setRemoteAddr(remoteAddr);
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, response, chain);
+        if (chain.getRequest() != null) {
+            // the controller still gets the whole body
+            assertEquals(body, new String(chain.getRequest().getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+        }
+        return response;
+    }
+
+    @Test
+    void testEmailLimitAppliesAcrossIpsAndIgnoresCase() throws Exception {
+        assertEquals(200, login("10.0.0.1", "{\"email\":\"victim@example.com\",\"password\":\"a\"}").getStatus());
+        assertEquals(200, login("10.0.0.2", "{\"email\":\"Victim@Example.com\",\"password\":\"b\"}").getStatus());
+
+        MockHttpServletResponse limited = login("10.0.0.3", "{\"email\":\"victim@example.com\",\"password\":\"c\"}");
+        assertEquals(429, limited.getStatus());
+        assertNotNull(limited.getHeader("Retry-After"));
+
+        assertEquals(200, login("10.0.0.3", "{\"email\":\"other@example.com\",\"password\":\"c\"}").getStatus());
+    }
+
+    @Test
+    void testOversizedBodyIsRefusedInsteadOfSkippingTheEmailLimit() throws Exception {
+        String padded = "{\"email\":\"victim@example.com\",\"password\":\"a\"}"
+                + " ".repeat(AuthRateLimitFilter.MAX_BODY_BYTES);
+        assertEquals(413, login("10.0.0.1", padded).getStatus());
+    }
+
+    @Test
+    void testReplayedBodyCanBeReadWithAReadListener() throws Exception {
+        String body = "{\"email\":\"user@example.com\",\"password\":\"a\"}";
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/login");
+        request.setServletPath("/auth/login");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        ServletInputStream input = chain.getRequest().getInputStream();
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        AtomicBoolean allRead = new AtomicBoolean();
+        input.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                byte[] buffer = new byte[8];
+                while (input.isReady() && !input.isFinished()) {
+                    int count = input.read(buffer);
+                    if (count > 0) read.write(buffer, 0, count);
+                }
+            }
+
+            @Override
+            public void onAllDataRead() {
+                allRead.set(true);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                fail(t);
+            }
+        });
+
+        assertTrue(allRead.get());
+        assertEquals(body, read.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,94 @@
+package sj.sj_troubleshooting.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void testBurstUpToLimitThenWaitForRefill() {
+        // 3 per 3 seconds: one token back every second
+        RateLimiter limiter = new RateLimiter(3, 3, TimeUnit.SECONDS, 100);
+        long now = 0;
+
+        assertEquals(0, limiter.tryAcquire("10.0.0.1", now));
+        assertEquals(0, limiter.tryAcquire("10.0.0.1", now));
+        assertEquals(0, limiter.tryAcquire("10.0.0.1", now));
+        long wait = limiter.tryAcquire("10.0.0.1", now);
+        assertEquals(SECOND, wait);
+
+        // other keys have their own bucket
+        assertEquals(0, limiter.tryAcquire("10.0.0.2", now));
+
+        assertEquals(0, limiter.tryAcquire("10.0.0.1", now + wait));
+        assertTrue(limiter.tryAcquire("10.0.0.1", now + wait) > 0);
+    }
+
+    @Test
+    void testRejectedRequestsDoNotExtendTheWait() {
+        RateLimiter limiter = new RateLimiter(1, 1, TimeUnit.SECONDS, 100);
+        assertEquals(0, limiter.tryAcquire("a", 0));
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire("a", 0) > 0);
+        }
+        assertEquals(0, limiter.tryAcquire("a", SECOND));
+    }
+
+    @Test
+    void testIdleKeysAreEvictedFirstWhenFull() {
+        RateLimiter limiter = new RateLimiter(1, 1, TimeUnit.SECONDS, 2);
+        long ms = TimeUnit.MILLISECONDS.toNanos(1);
+        limiter.tryAcquire("a", 0);
+        limiter.tryAcquire("b", 900 * ms);
+        // a is the most recently requested, but its bucket refills at 1s, b's only at 1.9s
+        assertTrue(limiter.tryAcquire("a", 950 * ms) > 0);
+
+        assertEquals(0, limiter.tryAcquire("c", 1500 * ms));
+        assertEquals(2, limiter.size());
+        assertTrue(limiter.tryAcquire("b", 1500 * ms) > 0);
+        assertTrue(limiter.tryAcquire("c", 1500 * ms) > 0);
+    }
+
+    @Test
+    void testLeastRecentlyRequestedKeyIsEvictedWhenNoneIsIdle() {
+        RateLimiter limiter = new RateLimiter(1, 1, TimeUnit.MINUTES, 2);
+        limiter.tryAcquire("a", 0);
+        limiter.tryAcquire("b", 1);
+        // a is hit again, so b is now the least recently requested
+        assertTrue(limiter.tryAcquire("a", 2) > 0);
+
+        assertEquals(0, limiter.tryAcquire("c", 3));
+        assertEquals(2, limiter.size());
+        assertTrue(limiter.tryAcquire("a", 4) > 0);
+        // b was dropped and starts over with a full bucket
+        assertEquals(0, limiter.tryAcquire("b", 5));
+    }
+
+    @Test
+    void testCyclingFreshKeysDoesNotResetAKeyStillBeingHit() {
+        RateLimiter limiter = new RateLimiter(1, 1, TimeUnit.MINUTES, 100);
+        long now = 0;
+        assertEquals(0, limiter.tryAcquire("victim@example.com", now));
+        for (int i = 0; i < 1000; i++) {
+            limiter.tryAcquire("fresh-" + i, ++now);
+            if (i % 50 == 0) assertTrue(limiter.tryAcquire("victim@example.com", ++now) > 0);
+        }
+        assertTrue(limiter.tryAcquire("victim@example.com", ++now) > 0);
+        assertTrue(limiter.size() <= 100);
+    }
+
+    @Test
+    void testCyclingKeysNeverTurnsLimitingOff() {
+        RateLimiter limiter = new RateLimiter(1, 1, TimeUnit.MINUTES, 100);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(0, limiter.tryAcquire("key-" + i, 0));
+            assertTrue(limiter.tryAcquire("key-" + i, 0) > 0);
+        }
+        assertEquals(100, limiter.size());
+    }
+}
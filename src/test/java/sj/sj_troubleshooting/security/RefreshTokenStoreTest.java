@@ -0,0 +1,57 @@
+package sj.sj_troubleshooting.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RefreshTokenStoreTest {
+
+    @Test
+    void testRefreshTokenCanBeUsedOnce() {
+        RefreshTokenStore store = new RefreshTokenStore(60_000, 10);
+        String token = store.issue(1L, "test@example.com", 7).token();
+
+        RefreshTokenStore.RefreshToken consumed = store.consume(token);
+
+        assertNotNull(consumed);
+        assertEquals(1L, consumed.userId());
+        assertEquals("test@example.com", consumed.email());
+        assertEquals(7, consumed.tokenVersion());
+        assertNull(store.consume(token));
+    }
+
+    @Test
+    void testReusingAConsumedTokenRevokesTheWholeFamily() {
+        RefreshTokenStore store = new RefreshTokenStore(60_000, 10);
+        String stolen = store.issue(1L, "test@example.com", 7).token();
+        String other = store.issue(1L, "test@example.com", 7).token();
+        String otherUser = store.issue(2L, "other@example.com", 3).token();
+
+        store.consume(stolen);
+        assertNull(store.consume(stolen));
+
+        assertNull(store.consume(other));
+        assertNotNull(store.consume(otherUser));
+    }
+
+    @Test
+    void testExpiredAndRevokedTokensAreRejected() {
+        RefreshTokenStore expiring = new RefreshTokenStore(-1, 10);
+        assertNull(expiring.consume(expiring.issue(1L, "test@example.com", 7).token()));
+
+        RefreshTokenStore store = new RefreshTokenStore(60_000, 10);
+        String token = store.issue(1L, "test@example.com", 7).token();
+        assertTrue(store.revoke(token));
+        assertNull(store.consume(token));
+        assertNull(store.consume("never-issued"));
+    }
+
+    @Test
+    void testStoreNeverGrowsPastMaxTokens() {
+        RefreshTokenStore store = new RefreshTokenStore(60_000, 10);
+
+        for (long userId = 0; userId < 50; userId++) store.issue(userId, "user" + userId + "@example.com", 1);
+
+        assertTrue(store.size() <= 10);
+    }
+}
@@ -0,0 +1,106 @@
+package sj.sj_troubleshooting.security;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.KeyPair;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RsaKeyManagerTest {
+
+    @TempDir
+    Path keysDir;
+
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    private RsaKeyManager managerOn(Path dir) throws Exception {
+        RsaKeyManager manager = new RsaKeyManager();
+        ReflectionTestUtils.setField(manager, "algorithm", "RS256");
+        ReflectionTestUtils.setField(manager, "privateKeyPem", "");
+        ReflectionTestUtils.setField(manager, "publicKeyPem", "");
+        ReflectionTestUtils.setField(manager, "keysDir", dir.toString());
+        ReflectionTestUtils.setField(manager, "activeKid", RsaKeyManager.DEFAULT_KEY_ID);
+        ReflectionTestUtils.setField(manager, "reloadMillis", 0L); // reload by hand
+        ReflectionTestUtils.setField(manager, "eventPublisher", eventPublisher);
+        ReflectionTestUtils.invokeMethod(manager, "init");
+        return manager;
+    }
+
+    private void writeKey(String prefix, KeyPair keyPair, boolean withPrivateKey) throws Exception {
+        Files.writeString(keysDir.resolve(prefix + "public_key.pem"), RsaKeyGenerator.formatPublicKey(keyPair.getPublic()));
+        if (withPrivateKey) {
+            Files.writeString(keysDir.resolve(prefix + "private_key.pem"), RsaKeyGenerator.formatPrivateKey(keyPair.getPrivate()));
+        }
+    }
+
+    @Test
+    void testUnprefixedFilesAreTheDefaultKey() throws Exception {
+        KeyPair keyPair = RsaKeyGenerator.generateRsaKeyPair();
+        writeKey("", keyPair, true);
+
+        RsaKeyManager manager = managerOn(keysDir);
+
+        assertEquals(Set.of("default"), manager.getKeyIds());
+        assertEquals(keyPair.getPublic(), manager.getPublicKey());
+    }
+
+    @Test
+    void testReloadSwitchesActiveKeyAndReportsRemovedOnes() throws Exception {
+        writeKey("", RsaKeyGenerator.generateRsaKeyPair(), true);
+        RsaKeyManager manager = managerOn(keysDir);
+
+        KeyPair rotated = RsaKeyGenerator.generateRsaKeyPair();
+        writeKey("2026-10_", rotated, true);
+        Files.writeString(keysDir.resolve(RsaKeyManager.ACTIVE_KID_FILE), "2026-10\n");
+        manager.reloadIfChanged();
+
+        assertEquals("2026-10", manager.getActiveKey().kid());
+        assertEquals(Set.of("default", "2026-10"), manager.getKeyIds());
+        verify(eventPublisher).publishEvent(new SigningKeysChangedEvent("2026-10", Set.of(), Set.of()));
+
+        Files.delete(keysDir.resolve("public_key.pem"));
+        Files.delete(keysDir.resolve("private_key.pem"));
+        manager.reloadIfChanged();
+
+        assertEquals(Set.of("2026-10"), manager.getKeyIds());
+        verify(eventPublisher).publishEvent(new SigningKeysChangedEvent("2026-10", Set.of("default"), Set.of()));
+    }
+
+    @Test
+    void testReloadReportsKeyReplacedUnderTheSameKid() throws Exception {
+        writeKey("", RsaKeyGenerator.generateRsaKeyPair(), true);
+        RsaKeyManager manager = managerOn(keysDir);
+
+        KeyPair replacement = RsaKeyGenerator.generateRsaKeyPair();
+        writeKey("", replacement, true);
+        // same size, so make sure the poll sees a new modification time
+        Path publicKey = keysDir.resolve("public_key.pem");
+        Files.setLastModifiedTime(publicKey, FileTime.fromMillis(Files.getLastModifiedTime(publicKey).toMillis() + 2_000));
+        manager.reloadIfChanged();
+
+        assertEquals(replacement.getPublic(), manager.getPublicKey());
+        verify(eventPublisher).publishEvent(new SigningKeysChangedEvent("default", Set.of(), Set.of("default")));
+    }
+
+    @Test
+    void testBrokenReloadKeepsCurrentKeys() throws Exception {
+        writeKey("", RsaKeyGenerator.generateRsaKeyPair(), true);
+        RsaKeyManager manager = managerOn(keysDir);
+
+        // the active key id points at a key without a private half
+        writeKey("verify-only_", RsaKeyGenerator.generateRsaKeyPair(), false);
+        Files.writeString(keysDir.resolve(RsaKeyManager.ACTIVE_KID_FILE), "verify-only");
+        manager.reloadIfChanged();
+
+        assertEquals("default", manager.getActiveKey().kid());
+        verifyNoInteractions(eventPublisher);
+    }
+}
@@ -1,14 +1,24 @@
 package sj.sj_troubleshooting.security;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.util.Base64;
 import java.util.Collections;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -46,6 +56,89 @@ class TokenManagerTest {
         assertNotNull(userDetails);
     }
 
+    @Test
+    void testGeneratedTokenCarriesUserIdAndVersion() throws Exception {
+        useKeys("RS256", Map.of("default", RsaKeyGenerator.generateRsaKeyPair()), "default");
+
+        JwtUserDetails jwtUserDetails = new JwtUserDetails(42L, "test@example.com", "$2a$04$hash", Collections.emptyList());
+        String token = tokenManager.generateJwtToken(jwtUserDetails);
+        Claims claims = tokenManager.getVerifiedClaims(token);
+
+        assertEquals("test@example.com", claims.getSubject());
+        assertEquals(42L, claims.get(TokenManager.USER_ID_CLAIM, Long.class));
+        assertNotNull(claims.getId());
+        assertEquals(TokenVersionRegistry.versionOf("$2a$04$hash"), claims.get(TokenManager.TOKEN_VERSION_CLAIM, Integer.class));
+        assertTrue(tokenManager.validateJwtToken(token, jwtUserDetails));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"RS256", "ES256", "EdDSA"})
+    void testTokensAreSignedWithConfiguredAlgorithm(String algorithm) throws Exception {
+        useKeys(algorithm, Map.of("default", RsaKeyGenerator.generateKeyPair(algorithm)), "default");
+
+        String token = tokenManager.generateJwtToken(userDetails);
+        String header = new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))), StandardCharsets.UTF_8);
+
+        assertTrue(header.contains("\"alg\":\"" + algorithm + "\""));
+        assertEquals("test@example.com", tokenManager.getEmailFromToken(token));
+    }
+
+    @Test
+    void testTokenSignedWithAnotherAlgorithmOfTheSameKeyIsRejected() throws Exception {
+        KeyPair keyPair = RsaKeyGenerator.generateRsaKeyPair();
+        useKeys("RS256", Map.of("default", keyPair), "default");
+        String ps256Token = Jwts.builder().subject("test@example.com")
+                .expiration(new java.util.Date(System.currentTimeMillis() + 60_000))
+                .signWith(keyPair.getPrivate(), Jwts.SIG.PS256)
+                .compact();
+
+        assertThrows(UnsupportedJwtException.class, () -> tokenManager.getVerifiedClaims(ps256Token));
+    }
+
+    @Test
+    void testTokensOfRotatedOutKeyStillVerifyWhileItsPublicKeyIsKept() throws Exception {
+        KeyPair oldKey = RsaKeyGenerator.generateRsaKeyPair();
+        KeyPair newKey = RsaKeyGenerator.generateRsaKeyPair();
+        useKeys("RS256", Map.of("old", oldKey), "old");
+        String oldToken = tokenManager.generateJwtToken(userDetails);
+
+        // rotate: new key signs, old one only verifies
+        useKeys("RS256", Map.of("old", oldKey, "new", newKey), "new");
+        String newToken = tokenManager.generateJwtToken(userDetails);
+        assertEquals("new", rsaKeyManager.getParser().parseSignedClaims(newToken).getHeader().getKeyId());
+        assertEquals("test@example.com", tokenManager.getEmailFromToken(oldToken));
+
+        // old key retired: its tokens are rejected
+        useKeys("RS256", Map.of("new", newKey), "new");
+        assertThrows(UnsupportedJwtException.class, () -> tokenManager.getEmailFromToken(oldToken));
+        assertEquals("test@example.com", tokenManager.getEmailFromToken(newToken));
+    }
+
+    @Test
+    void testValidationTimerCoversTheClaimsCheckTheFilterRuns() throws Exception {
+        useKeys("RS256", Map.of("default", RsaKeyGenerator.generateRsaKeyPair()), "default");
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        setField("meterRegistry", meterRegistry);
+        Claims claims = tokenManager.getVerifiedClaims(tokenManager.generateJwtToken(userDetails));
+
+        assertTrue(tokenManager.validateJwtToken(claims, userDetails));
+        assertEquals(1, meterRegistry.get("jwt.validate").timer().count());
+    }
+
+    private void useKeys(String algorithm, Map<String, KeyPair> keyPairs, String activeKid) throws Exception {
+        rsaKeyManager = new RsaKeyManager(algorithm, keyPairs, activeKid);
+        setField("rsaKeyManager", rsaKeyManager);
+        setField("tokenValidity", 60_000);
+        setField("verifiedTokenCache", new VerifiedTokenCache(10));
+        setField("meterRegistry", new SimpleMeterRegistry());
+    }
+
+    private void setField(String name, Object value) throws Exception {
+        java.lang.reflect.Field field = TokenManager.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(tokenManager, value);
+    }
+
     @Test
     void testUserDetailsSetup() {
         assertEquals("test@example.com", userDetails.getUsername());
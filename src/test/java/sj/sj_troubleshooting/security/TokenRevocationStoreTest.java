@@ -0,0 +1,66 @@
+package sj.sj_troubleshooting.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenRevocationStoreTest {
+
+    private Claims claims(long userId, String tokenId, long issuedAtMillis) {
+        return Jwts.claims()
+                .subject("test@example.com")
+                .id(tokenId)
+                .issuedAt(new Date(issuedAtMillis))
+                .expiration(new Date(issuedAtMillis + 60_000))
+                .add(TokenManager.USER_ID_CLAIM, userId)
+                .build();
+    }
+
+    @Test
+    void testRevokedTokenIdIsRejectedOthersAreNot() {
+        TokenRevocationStore store = new TokenRevocationStore(60_000);
+        Claims revoked = claims(1L, "revoked-id", System.currentTimeMillis());
+
+        store.revokeToken(revoked.getId(), revoked.getExpiration());
+
+        assertTrue(store.isRevoked(revoked));
+        assertFalse(store.isRevoked(claims(1L, "other-id", System.currentTimeMillis())));
+    }
+
+    @Test
+    void testRevokeAllRejectsOnlyTokensIssuedBefore() {
+        TokenRevocationStore store = new TokenRevocationStore(60_000);
+        long now = System.currentTimeMillis();
+
+        store.revokeAllFor(1L);
+
+        assertTrue(store.isRevoked(claims(1L, "old", now - 5_000)));
+        assertFalse(store.isRevoked(claims(1L, "new", now + 5_000)));
+        assertFalse(store.isRevoked(claims(2L, "other-user", now - 5_000)));
+    }
+
+    @Test
+    void testRevokeAllRejectsTokenIssuedEarlierInTheSameSecond() throws InterruptedException {
+        TokenRevocationStore store = new TokenRevocationStore(60_000);
+        // a parsed iat is truncated to whole seconds
+        long issuedAt = System.currentTimeMillis() / 1000 * 1000;
+        Thread.sleep(1); // the revocation comes strictly after the issue
+
+        store.revokeAllFor(1L);
+
+        assertTrue(store.isRevoked(claims(1L, "same-second", issuedAt)));
+    }
+
+    @Test
+    void testAlreadyExpiredTokensAreNotStored() {
+        TokenRevocationStore store = new TokenRevocationStore(60_000);
+
+        store.revokeToken("expired-id", new Date(System.currentTimeMillis() - 1_000));
+
+        assertEquals(0, store.size());
+    }
+}
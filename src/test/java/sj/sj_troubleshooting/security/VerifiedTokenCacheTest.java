@@ -0,0 +1,69 @@
+package sj.sj_troubleshooting.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerifiedTokenCacheTest {
+
+    private Claims claimsExpiringIn(long millis) {
+        return Jwts.claims()
+                .subject("test@example.com")
+                .expiration(new Date(System.currentTimeMillis() + millis))
+                .build();
+    }
+
+    @Test
+    void testReturnsCachedClaimsForSameToken() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        Claims claims = claimsExpiringIn(60_000);
+
+        cache.put("header.payload.signature", claims);
+
+        assertSame(claims, cache.get("header.payload.signature"));
+        assertNull(cache.get("header.payload.other"));
+    }
+
+    @Test
+    void testExpiredTokensAreNotServed() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+
+        cache.put("expired.token.value", claimsExpiringIn(-1_000));
+
+        assertNull(cache.get("expired.token.value"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testCacheNeverGrowsPastMaxSize() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(2);
+
+        cache.put("token.one.a", claimsExpiringIn(60_000));
+        cache.put("token.two.b", claimsExpiringIn(60_000));
+        cache.put("token.three.c", claimsExpiringIn(60_000));
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("token.three.c"));
+    }
+
+    @Test
+    void testClearedWhenASigningKeyIsRemovedOrReplaced() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        cache.put("token.one.a", claimsExpiringIn(60_000));
+
+        cache.onSigningKeysChanged(new SigningKeysChangedEvent("2026-10", Set.of(), Set.of()));
+        assertEquals(1, cache.size());
+
+        cache.onSigningKeysChanged(new SigningKeysChangedEvent("default", Set.of(), Set.of("default")));
+        assertEquals(0, cache.size());
+
+        cache.put("token.one.a", claimsExpiringIn(60_000));
+        cache.onSigningKeysChanged(new SigningKeysChangedEvent("2026-10", Set.of("default"), Set.of()));
+        assertEquals(0, cache.size());
+    }
+}
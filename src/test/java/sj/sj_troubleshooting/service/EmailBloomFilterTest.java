@@ -0,0 +1,107 @@
+package sj.sj_troubleshooting.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import sj.sj_troubleshooting.repository.UserRepository;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class EmailBloomFilterTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private EmailBloomFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        filter = new EmailBloomFilter();
+        ReflectionTestUtils.setField(filter, "expectedUsers", 10_000L);
+        ReflectionTestUtils.setField(filter, "falsePositiveRate", 0.01);
+        ReflectionTestUtils.setField(filter, "userRepo", userRepository);
+        ReflectionTestUtils.setField(filter, "transactionManager", transactionManager);
+    }
+
+    private static List<String> emails(String prefix, int count) {
+        return IntStream.range(0, count).mapToObj(i -> prefix + i + "@example.com").toList();
+    }
+
+    private void build(List<String> registered) {
+        when(userRepository.count()).thenReturn((long) registered.size());
+        when(userRepository.streamAllEmails()).thenAnswer(call -> registered.stream());
+        ReflectionTestUtils.invokeMethod(filter, "build");
+    }
+
+    @Test
+    void testEverythingMightBePresentUntilBuilt() {
+        assertTrue(filter.mightContain("anyone@example.com"));
+    }
+
+    @Test
+    void testNoFalseNegativesAfterBuildOrPut() {
+        List<String> registered = emails("registered", 5_000);
+        build(registered);
+        List<String> added = emails("added", 5_000);
+        added.forEach(filter::put);
+
+        for (String email : registered) assertTrue(filter.mightContain(email), email);
+        for (String email : added) assertTrue(filter.mightContain(email), email);
+    }
+
+    @Test
+    void testFalsePositiveRateStaysNearTheTarget() {
+        build(emails("registered", 10_000));
+
+        long falsePositives = emails("unknown", 10_000).stream().filter(filter::mightContain).count();
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void testRegistrationDuringRebuildIsNotLost() {
+        build(emails("registered", 10));
+        // a signup lands while the rebuild streams the table
+        when(userRepository.streamAllEmails()).thenAnswer(call -> Stream.of("registered0@example.com")
+                .peek(email -> filter.put("concurrent@example.com")));
+        ReflectionTestUtils.invokeMethod(filter, "build");
+
+        assertTrue(filter.mightContain("concurrent@example.com"));
+        assertTrue(filter.mightContain("registered0@example.com"));
+    }
+
+    @Test
+    void testEnoughDeletionsTriggerARebuildThatForgetsThem() throws InterruptedException {
+        build(List.of("kept@example.com", "deleted@example.com"));
+        assertTrue(filter.mightContain("deleted@example.com"));
+        when(userRepository.streamAllEmails()).thenAnswer(call -> Stream.of("kept@example.com"));
+
+        filter.recordDeletions(1000);
+        assertFalse(((AtomicBoolean) ReflectionTestUtils.getField(filter, "rebuildInProgress")).get());
+        filter.recordDeletions(1);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (filter.mightContain("deleted@example.com") && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertFalse(filter.mightContain("deleted@example.com"));
+        assertTrue(filter.mightContain("kept@example.com"));
+    }
+
+    @Test
+    void testFailedRebuildKeepsTheCurrentFilter() {
+        build(List.of("kept@example.com"));
+        when(userRepository.streamAllEmails()).thenThrow(new IllegalStateException("database down"));
+
+        ReflectionTestUtils.invokeMethod(filter, "build");
+
+        assertTrue(filter.mightContain("kept@example.com"));
+        assertFalse(((AtomicBoolean) ReflectionTestUtils.getField(filter, "rebuildInProgress")).get());
+    }
+}
@@ -0,0 +1,55 @@
+package sj.sj_troubleshooting.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// differential test: EmailValidator must accept and reject exactly what the original regex does
+class EmailValidatorTest {
+
+    private static final Pattern ORIGINAL = Pattern.compile("^[\\w_+-.]+@[\\w_+-.]+\\.[a-zA-Z]{2,}$");
+    private static final String ALPHABET = "abcXYZ09_+,-.@/ %é\n";
+
+    private final EmailValidator validator = new EmailValidator();
+
+    private void assertSameAsRegex(String email) {
+        assertEquals(ORIGINAL.matcher(email).matches(), validator.isValid(email), "Mismatch for: [" + email + "]");
+    }
+
+    @Test
+    void testHandPickedCorpus() {
+        List<String> corpus = List.of(
+                "test@example.com", "a@b.co", "first.last+tag@sub.domain.org", "a,b@c-d.ef",
+                "", "@", "a@", "@b.com", "a@b", "a@b.", "a@.com", "a@b.c", "a@b.c1", "a@b.com1",
+                "a@b..com", "a@@b.com", "a b@c.com", "a@b.com\n", "é@b.com", "a@b.cOM", "a@b.c-m",
+                "a.@b.com", ".a@b.com", "a@-b.com", "a@b-.com", "a@b.com.", "a@1.2.3.xy", "_@_.__",
+                "a@b._c", "a@b.comm", "a@b.c.d"
+        );
+        corpus.forEach(this::assertSameAsRegex);
+    }
+
+    @Test
+    void testRandomCorpus() {
+        Random random = new Random(42);
+        List<String> corpus = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            StringBuilder builder = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int j = 0; j < length; j++) builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            // bias towards near-valid addresses so both branches get exercised
+            if (random.nextBoolean()) builder.append(random.nextBoolean() ? ".com" : ".c");
+            corpus.add(builder.toString());
+        }
+        corpus.forEach(this::assertSameAsRegex);
+    }
+
+    @Test
+    void testNullIsRejected() {
+        assertFalse(validator.isValid(null));
+    }
+}
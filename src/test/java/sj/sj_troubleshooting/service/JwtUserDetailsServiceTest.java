@@ -0,0 +1,67 @@
+package sj.sj_troubleshooting.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import sj.sj_troubleshooting.entity.UserEntity;
+import sj.sj_troubleshooting.repository.UserRepository;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JwtUserDetailsServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Spy
+    private UserDetailsCache userDetailsCache = new UserDetailsCache(10, 60_000);
+
+    @Spy
+    private EmailValidator emailValidator = new EmailValidator();
+
+    @InjectMocks
+    private JwtUserDetailsService jwtUserDetailsService;
+
+    @BeforeEach
+    void setUp() {
+        jwtUserDetailsService.setAdmins(" Admin@Example.com , ops@example.com,");
+    }
+
+    private UserDetails load(String email) {
+        UserEntity user = new UserEntity();
+        user.setId(1L);
+        user.setEmail(email);
+        user.setPassword("$2a$04$hash");
+        when(userRepository.findByEmail(email)).thenReturn(Optional.of(user));
+        return jwtUserDetailsService.loadUserByEmail(email);
+    }
+
+    @Test
+    void testConfiguredAdminsGetTheAdminRole() {
+        assertEquals(1, load("admin@example.com").getAuthorities().size());
+        assertEquals("ROLE_ADMIN", load("ops@example.com").getAuthorities().iterator().next().getAuthority());
+    }
+
+    @Test
+    void testOtherUsersGetNoRole() {
+        assertTrue(load("user@example.com").getAuthorities().isEmpty());
+    }
+
+    @Test
+    void testCachedUsersKeepTheirRole() {
+        load("admin@example.com");
+        UserDetails cached = jwtUserDetailsService.loadUserByEmail("admin@example.com");
+        verify(userRepository, times(1)).findByEmail("admin@example.com");
+        assertEquals("ROLE_ADMIN", cached.getAuthorities().stream().map(GrantedAuthority::getAuthority).findFirst().orElseThrow());
+    }
+}
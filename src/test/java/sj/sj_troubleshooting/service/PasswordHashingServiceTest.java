@@ -0,0 +1,128 @@
+package sj.sj_troubleshooting.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import sj.sj_troubleshooting.exception.PasswordHashingSaturatedException;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PasswordHashingService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new PasswordHashingService();
+        ReflectionTestUtils.setField(service, "threads", 1);
+        ReflectionTestUtils.setField(service, "queueCapacity", 1);
+        ReflectionTestUtils.setField(service, "strength", 4);
+        ReflectionTestUtils.setField(service, "maxStrength", 14);
+        ReflectionTestUtils.setField(service, "meterRegistry", meterRegistry);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    private ThreadPoolExecutor executor() {
+        return (ThreadPoolExecutor) ReflectionTestUtils.getField(service, "executor");
+    }
+
+    // fills the hashing thread and the queue until release is counted down
+    private void occupy(CountDownLatch release) {
+        for (int i = 0; i < 2; i++) {
+            executor().submit(() -> {
+                release.await();
+                return null;
+            });
+        }
+    }
+
+    @Test
+    void testEncodeAllRunsOnTheBoundedPoolAndKeepsOrder() {
+        List<String> passwords = List.of("one", "two", "three", "four", "five");
+
+        List<String> hashes = service.encodeAll(passwords);
+
+        assertEquals(passwords.size(), hashes.size());
+        for (int i = 0; i < passwords.size(); i++) assertTrue(service.matches(passwords.get(i), hashes.get(i)));
+        assertEquals(passwords.size() * 2, executor().getTaskCount());
+        assertEquals(passwords.size(), meterRegistry.get("password.hash").tag("operation", "bulk-encode").timer().count());
+        assertEquals(0, service.getRejectedCount());
+    }
+
+    @Test
+    void testFullPoolAndQueueRejectStraightAway() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        // the only hashing thread is busy and the one queue slot is taken
+        occupy(release);
+
+        assertThrows(PasswordHashingSaturatedException.class, () -> service.encode("password"));
+        assertThrows(PasswordHashingSaturatedException.class, () -> service.matches("password", "$2a$04$x"));
+        assertEquals(2, service.getRejectedCount());
+        assertEquals(2.0, meterRegistry.get("password.hashing.rejected").functionCounter().count());
+        assertEquals(1, service.getQueueDepth());
+
+        release.countDown();
+        while (service.getQueueDepth() > 0) Thread.sleep(1);
+        assertTrue(service.matches("password", service.encode("password")));
+    }
+
+    @Test
+    void testEncodeAllWaitsForAFullQueueInsteadOfFailing() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        occupy(release);
+
+        ExecutorService importer = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<String>> hashes = importer.submit(() -> service.encodeAll(List.of("one", "two")));
+            Thread.sleep(50);
+            assertFalse(hashes.isDone());
+
+            release.countDown();
+            assertEquals(2, hashes.get(5, TimeUnit.SECONDS).size());
+            assertEquals(0, service.getRejectedCount());
+        } finally {
+            importer.shutdownNow();
+        }
+    }
+
+    @Test
+    void testCalibrationStopsAtMaxStrength() {
+        PasswordHashingService calibrated = new PasswordHashingService();
+        ReflectionTestUtils.setField(calibrated, "strength", 4);
+        ReflectionTestUtils.setField(calibrated, "maxStrength", 6);
+        ReflectionTestUtils.setField(calibrated, "targetMillis", 60_000L);
+        ReflectionTestUtils.setField(calibrated, "queueCapacity", 1);
+        ReflectionTestUtils.setField(calibrated, "meterRegistry", new SimpleMeterRegistry());
+        calibrated.init();
+        try {
+            assertEquals(6, calibrated.getStrength());
+            assertTrue(calibrated.encode("password").startsWith("$2a$06$"));
+        } finally {
+            calibrated.shutdown();
+        }
+    }
+
+    @Test
+    void testCalibrationKeepsAStrengthThatIsAlreadySlowEnough() {
+        ReflectionTestUtils.setField(service, "strength", 10);
+        ReflectionTestUtils.setField(service, "targetMillis", 1L);
+
+        assertEquals(10, (int) ReflectionTestUtils.invokeMethod(service, "calibrateStrength"));
+    }
+}
@@ -0,0 +1,67 @@
+package sj.sj_troubleshooting.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserDetailsCacheTest {
+
+    @Test
+    void testHitMissAndInvalidate() {
+        UserDetailsCache cache = new UserDetailsCache(10, 60_000);
+
+        assertNull(cache.get("test@example.com"));
+        cache.put(1L, "test@example.com", "hash");
+        assertEquals("hash", cache.get("test@example.com").password());
+
+        cache.invalidate("test@example.com");
+        assertNull(cache.get("test@example.com"));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void testExpiredEntriesAreEvicted() {
+        UserDetailsCache cache = new UserDetailsCache(10, 0);
+
+        cache.put(1L, "test@example.com", "hash");
+
+        assertNull(cache.get("test@example.com"));
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    void testSizeStaysBounded() {
+        UserDetailsCache cache = new UserDetailsCache(10, 60_000);
+
+        for (long i = 0; i < 100; i++) {
+            cache.put(i, "user" + i + "@example.com", "hash");
+        }
+
+        assertTrue(cache.size() <= 10);
+        assertTrue(cache.getEvictions() >= 90);
+        assertNotNull(cache.get("user99@example.com"));
+    }
+
+    @Test
+    void testCountersAreExposedAsMeters() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        UserDetailsCache cache = new UserDetailsCache(10, 60_000);
+        ReflectionTestUtils.setField(cache, "meterRegistry", registry);
+        cache.registerMeters();
+
+        assertNull(cache.get("test@example.com"));
+        cache.put(1L, "test@example.com", "hash");
+        cache.get("test@example.com");
+        cache.get("test@example.com");
+
+        assertEquals(2, registry.get("cache.gets").tags("cache", "userDetails", "result", "hit").functionCounter().count());
+        assertEquals(1, registry.get("cache.gets").tags("cache", "userDetails", "result", "miss").functionCounter().count());
+        assertEquals(0, registry.get("cache.evictions").tag("cache", "userDetails").functionCounter().count());
+        assertEquals(1, registry.get("cache.size").tag("cache", "userDetails").gauge().value());
+    }
+}
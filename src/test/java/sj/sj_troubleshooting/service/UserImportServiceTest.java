@@ -0,0 +1,170 @@
+package sj.sj_troubleshooting.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import sj.sj_troubleshooting.dto.UserImportFailureDTO;
+import sj.sj_troubleshooting.dto.UserImportReportDTO;
+import sj.sj_troubleshooting.entity.UserEntity;
+import sj.sj_troubleshooting.repository.UserRepository;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserImportServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Spy
+    private EmailValidator emailValidator = new EmailValidator();
+
+    @Mock
+    private PasswordHashingService passwordHashingService;
+
+    @Mock
+    private UserSearchIndex userSearchIndex;
+
+    @Mock
+    private EmailBloomFilter emailBloomFilter;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private UserImportService userImportService;
+
+    // emails of every batch passed to saveAll
+    private final List<List<String>> savedBatches = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(userImportService, "chunkSize", 2);
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        lenient().when(emailBloomFilter.mightContain(anyString())).thenReturn(true);
+        lenient().when(passwordHashingService.encodeAll(anyList()))
+                .thenAnswer(call -> {
+                    List<String> raws = call.getArgument(0);
+                    return raws.stream().map(raw -> "hash-" + raw).toList();
+                });
+        lenient().when(userRepository.saveAll(anyList())).thenAnswer(call -> {
+            List<UserEntity> entities = call.getArgument(0);
+            savedBatches.add(entities.stream().map(UserEntity::getEmail).toList());
+            return entities;
+        });
+    }
+
+    private UserImportReportDTO importCsv(String... lines) throws IOException {
+        String body = "username,email,password\n" + String.join("\n", lines);
+        return userImportService.importUsers(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), true);
+    }
+
+    private List<String> reasons(UserImportReportDTO report) {
+        return report.getFailures().stream().map(failure -> failure.getLine() + " " + failure.getReason()).toList();
+    }
+
+    @Test
+    void testRowsAreHashedAndSavedOneChunkAtATime() throws IOException {
+        UserImportReportDTO report = importCsv("a,a@example.com,pa", "b,b@example.com,pb", "c,c@example.com,pc");
+
+        assertEquals(3, report.getImported());
+        assertEquals(0, report.getFailed());
+        assertEquals(List.of(List.of("a@example.com", "b@example.com"), List.of("c@example.com")), savedBatches);
+        verify(passwordHashingService).encodeAll(List.of("pa", "pb"));
+        verify(passwordHashingService).encodeAll(List.of("pc"));
+        verify(userRepository, times(2)).findExistingEmails(anyList());
+        verify(emailBloomFilter).put("c@example.com");
+    }
+
+    @Test
+    void testDuplicatesWithinTheFileAreReportedAcrossChunks() throws IOException {
+        UserImportReportDTO report = importCsv("a,a@example.com,pa", "b,b@example.com,pb", "again,a@example.com,px");
+
+        assertEquals(2, report.getImported());
+        assertEquals(List.of("4 Duplicate email in import"), reasons(report));
+        assertEquals(1, savedBatches.size());
+    }
+
+    @Test
+    void testEmailsAlreadyInTheDatabaseAreSkipped() throws IOException {
+        when(userRepository.findExistingEmails(List.of("a@example.com", "b@example.com"))).thenReturn(List.of("b@example.com"));
+
+        UserImportReportDTO report = importCsv("a,a@example.com,pa", "b,b@example.com,pb");
+
+        assertEquals(1, report.getImported());
+        assertEquals(List.of("3 Email already in use"), reasons(report));
+        verify(passwordHashingService).encodeAll(List.of("pa"));
+    }
+
+    @Test
+    void testEmailsTheBloomFilterRulesOutAreNotQueried() throws IOException {
+        when(emailBloomFilter.mightContain(anyString())).thenReturn(false);
+
+        assertEquals(2, importCsv("a,a@example.com,pa", "b,b@example.com,pb").getImported());
+        verify(userRepository, never()).findExistingEmails(anyList());
+    }
+
+    @Test
+    void testConcurrentRegistrationFallsBackToRowByRowInserts() throws IOException {
+        doThrow(new DataIntegrityViolationException("unique")).when(userRepository).saveAll(anyList());
+        when(userRepository.save(any(UserEntity.class))).thenAnswer(call -> {
+            UserEntity entity = call.getArgument(0);
+            if (entity.getEmail().equals("b@example.com")) throw new DataIntegrityViolationException("unique");
+            return entity;
+        });
+
+        UserImportReportDTO report = importCsv("a,a@example.com,pa", "b,b@example.com,pb");
+
+        assertEquals(1, report.getImported());
+        assertEquals(1, report.getFailed());
+        assertEquals(List.of("3 Email already in use"), reasons(report));
+        verify(userSearchIndex, times(1)).add(any());
+        verify(emailBloomFilter).put("a@example.com");
+        verify(emailBloomFilter, never()).put("b@example.com");
+    }
+
+    @Test
+    void testReportListsInvalidAndUnparseableRowsByLine() throws IOException {
+        UserImportReportDTO report = importCsv(
+                "a,a@example.com,pa", ",nousername@example.com,p", "c,not-an-email,p", "d,d@example.com,", "just one column");
+
+        assertEquals(1, report.getImported());
+        assertEquals(4, report.getFailed());
+        assertEquals(List.of("3 Missing username", "4 Invalid email format", "5 Missing password", "6 Unparseable row"),
+                reasons(report));
+        UserImportFailureDTO failure = report.getFailures().get(1);
+        assertEquals("not-an-email", failure.getEmail());
+    }
+
+    @Test
+    void testNdjsonRowsAreImported() throws IOException {
+        String body = "{\"username\":\"a\",\"email\":\"a@example.com\",\"password\":\"pa\"}\n\nnot json\n";
+
+        UserImportReportDTO report = userImportService.importUsers(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), false);
+
+        assertEquals(1, report.getImported());
+        assertEquals(List.of("3 Unparseable row"), reasons(report));
+    }
+}
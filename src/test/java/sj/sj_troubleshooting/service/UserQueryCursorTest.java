@@ -0,0 +1,37 @@
+package sj.sj_troubleshooting.service;
+
+import org.junit.jupiter.api.Test;
+import sj.sj_troubleshooting.exception.InvalidUserQueryRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserQueryCursorTest {
+
+    private static String forge(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testRoundTripKeepsValuesContainingColons() {
+        UserQueryCursor cursor = new UserQueryCursor("username", true, 42L, "a:b:c");
+        assertEquals(cursor, UserQueryCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void testForgedSortFieldIsRejected() {
+        // ordering and range-scanning on the password column would leak the hashes
+        assertThrows(InvalidUserQueryRequestException.class, () -> UserQueryCursor.decode(forge("password:a:0:$2a$10$M")));
+        assertThrows(InvalidUserQueryRequestException.class, () -> UserQueryCursor.decode(forge("nosuchfield:a:0:x")));
+    }
+
+    @Test
+    void testMalformedCursorsAreRejected() {
+        assertThrows(InvalidUserQueryRequestException.class, () -> UserQueryCursor.decode("not base64!"));
+        assertThrows(InvalidUserQueryRequestException.class, () -> UserQueryCursor.decode(forge("id:a:1")));
+        assertThrows(InvalidUserQueryRequestException.class, () -> UserQueryCursor.decode(forge("id:x:1:")));
+        assertThrows(InvalidUserQueryRequestException.class, () -> UserQueryCursor.decode(forge("id:a:one:")));
+    }
+}
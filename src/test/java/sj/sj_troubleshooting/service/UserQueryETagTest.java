@@ -0,0 +1,43 @@
+package sj.sj_troubleshooting.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import sj.sj_troubleshooting.dto.UserQueryResultDTO;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserQueryETagTest {
+
+    private final UserQueryETag eTag = new UserQueryETag(new ObjectMapper());
+
+    private List<UserQueryResultDTO> page(String username, int totalRecord) {
+        return List.of(new UserQueryResultDTO(1, 10, totalRecord), new UserQueryResultDTO(1L, username, "user1@example.com"));
+    }
+
+    @Test
+    void testSamePageAndQueryGiveTheSameETag() {
+        assertEquals(eTag.of(page("user1", 3), "user", null, 10, 1), eTag.of(page("user1", 3), "user", null, 10, 1));
+    }
+
+    @Test
+    void testETagChangesWithThePage() {
+        String before = eTag.of(page("user1", 3), "user", null, 10, 1);
+        assertNotEquals(before, eTag.of(page("renamed", 3), "user", null, 10, 1));
+        // a user added or deleted past this page still changes the total
+        assertNotEquals(before, eTag.of(page("user1", 4), "user", null, 10, 1));
+    }
+
+    @Test
+    void testETagDiffersPerQuery() {
+        assertNotEquals(eTag.of(page("user1", 3), "user", null, 10, 1), eTag.of(page("user1", 3), "user", null, 10, 2));
+    }
+
+    @Test
+    void testParameterBoundariesCannotBeShifted() {
+        assertNotEquals(UserQueryETag.canonical("a,b", null), UserQueryETag.canonical("a", "b"));
+        assertNotEquals(UserQueryETag.canonical("a;", "b"), UserQueryETag.canonical("a", ";b"));
+        assertNotEquals(UserQueryETag.canonical((Object) null), UserQueryETag.canonical("null"));
+    }
+}
@@ -0,0 +1,114 @@
+package sj.sj_troubleshooting.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import sj.sj_troubleshooting.dto.UserQueryResultDTO;
+import sj.sj_troubleshooting.entity.UserEntity;
+import sj.sj_troubleshooting.exception.InvalidUserQueryRequestException;
+import sj.sj_troubleshooting.repository.UserRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// keyset paging against embedded H2, the search index stays disabled so every page comes from the database
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+class UserQueryKeysetTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        // duplicate usernames so the id tie-breaker matters
+        for (int i = 1; i <= 7; i++) {
+            UserEntity user = new UserEntity();
+            user.setUsername("user" + (i % 3));
+            user.setEmail("user" + i + "@example.com");
+            user.setPassword("$2a$04$hash" + i);
+            userRepository.save(user);
+        }
+        userRepository.flush();
+
+        userService = new UserService();
+        ReflectionTestUtils.setField(userService, "entityManager", entityManager);
+        ReflectionTestUtils.setField(userService, "userRepo", userRepository);
+        ReflectionTestUtils.setField(userService, "userSearchIndex", new UserSearchIndex());
+        ReflectionTestUtils.setField(userService, "meterRegistry", new SimpleMeterRegistry());
+    }
+
+    // follows nextCursor to the end and returns the emails in page order
+    private List<String> walk(String sort, String order, int limit) {
+        List<String> emails = new ArrayList<>();
+        List<?> page = userService.userQuery(limit, 1, null, null, sort, order, null);
+        while (true) {
+            UserQueryResultDTO pageInfo = (UserQueryResultDTO) page.get(0);
+            page.stream().skip(1).map(row -> ((UserQueryResultDTO) row).getEmail()).forEach(emails::add);
+            if (pageInfo.getNextCursor() == null) return emails;
+            page = userService.userQuery(limit, null, null, null, null, null, pageInfo.getNextCursor());
+        }
+    }
+
+    @Test
+    void testCursorPagesMatchOffsetOrderWithoutGapsOrRepeats() {
+        for (String sort : List.of("id", "username", "email")) {
+            for (String order : List.of("asc", "desc")) {
+                List<?> all = userService.userQuery(100, 1, null, null, sort, order, null);
+                List<String> expected = all.stream().skip(1).map(row -> ((UserQueryResultDTO) row).getEmail()).toList();
+                assertEquals(7, expected.size());
+                assertEquals(expected, walk(sort, order, 2), sort + " " + order);
+            }
+        }
+    }
+
+    @Test
+    void testForgedCursorOnPasswordIsRejectedBeforeAnyQuery() {
+        String forged = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("password:a:0:$2a$04$hash4".getBytes(StandardCharsets.UTF_8));
+        assertThrows(InvalidUserQueryRequestException.class,
+                () -> userService.userQuery(10, null, null, null, null, null, forged));
+    }
+
+    private UserSearchIndex readyIndex() {
+        UserSearchIndex index = new UserSearchIndex();
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "ready", true);
+        ReflectionTestUtils.setField(index, "maxUsers", 100);
+        userRepository.findAll().forEach(index::add);
+        return index;
+    }
+
+    @Test
+    void testIndexPagesOnlyHandOverIdCursorsToTheDatabase() {
+        ReflectionTestUtils.setField(userService, "userSearchIndex", readyIndex());
+
+        // String order of names need not match the database collation, so no cursor is minted
+        UserQueryResultDTO byUsername = (UserQueryResultDTO) userService.userQuery(2, 1, "user", null, "username", "asc", null).get(0);
+        assertNull(byUsername.getNextCursor());
+
+        List<?> all = userService.userQuery(100, 1, "user", null, "id", "desc", null);
+        List<String> expected = all.stream().skip(1).map(row -> ((UserQueryResultDTO) row).getEmail()).toList();
+        List<String> walked = new ArrayList<>();
+        List<?> page = userService.userQuery(3, 1, "user", null, "id", "desc", null);
+        while (true) {
+            UserQueryResultDTO pageInfo = (UserQueryResultDTO) page.get(0);
+            page.stream().skip(1).map(row -> ((UserQueryResultDTO) row).getEmail()).forEach(walked::add);
+            if (pageInfo.getNextCursor() == null) break;
+            page = userService.userQuery(3, null, "user", null, null, null, pageInfo.getNextCursor());
+        }
+        assertEquals(expected, walked);
+    }
+}
@@ -0,0 +1,148 @@
+package sj.sj_troubleshooting.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import sj.sj_troubleshooting.dto.UserQueryResultDTO;
+import sj.sj_troubleshooting.entity.UserEntity;
+import sj.sj_troubleshooting.repository.UserRepository;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class UserSearchIndexTest {
+
+    private UserSearchIndex index;
+
+    private UserEntity user(Long id, String username, String email) {
+        UserEntity user = new UserEntity();
+        user.setId(id);
+        user.setUsername(username);
+        user.setEmail(email);
+        return user;
+    }
+
+    private List<Long> ids(List<UserQueryResultDTO> results) {
+        return results.stream().map(UserQueryResultDTO::getId).sorted().toList();
+    }
+
+    @BeforeEach
+    void setUp() {
+        index = new UserSearchIndex();
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "ready", true);
+        ReflectionTestUtils.setField(index, "maxUsers", 4);
+        index.add(user(1L, "alice", "alice@example.com"));
+        index.add(user(2L, "alicia", "alicia@test.org"));
+        index.add(user(3L, "bob", "bob@example.com"));
+    }
+
+    @Test
+    void testSubstringSearchMatchesLikeSemantics() {
+        assertEquals(List.of(1L, 2L), ids(index.search("ali", null)));
+        assertEquals(List.of(1L, 3L), ids(index.search(null, "example")));
+        assertEquals(List.of(1L), ids(index.search("lic", "example")));
+        assertTrue(index.search("zzz", null).isEmpty());
+    }
+
+    @Test
+    void testUpdateAndRemoveKeepIndexCurrent() {
+        index.add(user(3L, "bobby", "bobby@test.org"));
+        assertEquals(List.of(2L, 3L), ids(index.search(null, "test.org")));
+        assertTrue(index.search(null, "bob@example").isEmpty());
+
+        index.remove(2L);
+        assertEquals(List.of(3L), ids(index.search(null, "test.org")));
+    }
+
+    @Test
+    void testFallsBackToDatabaseForShortOrWildcardTerms() {
+        assertNull(index.search("al", null));
+        assertNull(index.search("a%c", null));
+        assertNull(index.search(null, null));
+    }
+
+    private int indexedUsers() {
+        return ((Map<?, ?>) ReflectionTestUtils.getField(index, "users")).size();
+    }
+
+    @Test
+    void testOutgrowingMaxUsersDisablesTheIndexForGood() {
+        index.add(user(4L, "carol", "carol@example.com"));
+        index.add(user(5L, "dave", "dave@example.com"));
+
+        assertFalse(index.isReady());
+        assertNull(index.search("ali", null));
+        assertEquals(0, indexedUsers());
+
+        // later writes must not fill it up again
+        index.add(user(6L, "erin", "erin@example.com"));
+        index.remove(1L);
+        assertEquals(0, indexedUsers());
+    }
+
+    @Test
+    void testBuildBeyondMaxUsersLeavesIndexDisabled() {
+        UserRepository userRepository = mock(UserRepository.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(userRepository.streamAllUsers()).thenReturn(Stream.of(1L, 2L, 3L, 4L, 5L)
+                .map(id -> new UserQueryResultDTO(id, "user" + id, "user" + id + "@example.com")));
+
+        UserSearchIndex overflowing = new UserSearchIndex();
+        ReflectionTestUtils.setField(overflowing, "enabled", true);
+        ReflectionTestUtils.setField(overflowing, "maxUsers", 4);
+        ReflectionTestUtils.setField(overflowing, "userRepo", userRepository);
+        ReflectionTestUtils.setField(overflowing, "transactionManager", transactionManager);
+        ReflectionTestUtils.invokeMethod(overflowing, "build");
+
+        assertFalse(overflowing.isReady());
+        overflowing.add(user(6L, "erin", "erin@example.com"));
+        assertEquals(0, ((Map<?, ?>) ReflectionTestUtils.getField(overflowing, "users")).size());
+    }
+
+    @Test
+    void testWritesDuringTheBuildWinOverRowsItAlreadyRead() throws InterruptedException {
+        UserRepository userRepository = mock(UserRepository.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        UserSearchIndex building = new UserSearchIndex();
+        // user 2 is deleted and user 3 renamed after their rows were read, before the build indexes them
+        when(userRepository.streamAllUsers()).thenReturn(Stream.of(1L, 2L, 3L).map(id -> {
+            if (id == 2L) building.remove(2L);
+            if (id == 3L) building.add(user(3L, "renamed", "user3@example.com"));
+            return new UserQueryResultDTO(id, "user" + id, "user" + id + "@example.com");
+        }));
+        ReflectionTestUtils.setField(building, "enabled", true);
+        ReflectionTestUtils.setField(building, "maxUsers", 10);
+        ReflectionTestUtils.setField(building, "userRepo", userRepository);
+        ReflectionTestUtils.setField(building, "transactionManager", transactionManager);
+        building.buildInBackground();
+        for (int i = 0; i < 500 && !building.isReady(); i++) Thread.sleep(10);
+
+        assertTrue(building.isReady());
+        assertEquals(List.of(1L, 3L), ids(building.search(null, "example.com")));
+        assertEquals(List.of(3L), ids(building.search("renamed", null)));
+        assertTrue(building.search("user3", null).isEmpty());
+        assertEquals(2, ((Map<?, ?>) ReflectionTestUtils.getField(building, "users")).size());
+    }
+
+    @Test
+    void testPostingStaysSortedAndUnique() {
+        UserSearchIndex.Posting posting = new UserSearchIndex.Posting();
+        for (long id : new long[]{5, 1, 9, 5, 3, 12, 7}) posting.add(id);
+        posting.remove(9);
+        posting.remove(42);
+
+        UserSearchIndex.Posting.Ids ids = posting.ids();
+        assertArrayEquals(new long[]{1, 3, 5, 7, 12}, Arrays.copyOf(ids.ids(), ids.size()));
+    }
+}
@@ -0,0 +1,127 @@
+package sj.sj_troubleshooting.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import sj.sj_troubleshooting.dto.BulkDeleteRequestDTO;
+import sj.sj_troubleshooting.dto.BulkDeleteResultDTO;
+import sj.sj_troubleshooting.dto.UserQueryResultDTO;
+import sj.sj_troubleshooting.repository.UserRepository;
+import sj.sj_troubleshooting.security.RefreshTokenStore;
+import sj.sj_troubleshooting.security.TokenRevocationStore;
+import sj.sj_troubleshooting.security.TokenVersionRegistry;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserServiceBulkDeleteTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private TokenVersionRegistry tokenVersionRegistry;
+
+    @Mock
+    private JwtUserDetailsService jwtUserDetailsService;
+
+    @Mock
+    private UserSearchIndex userSearchIndex;
+
+    @Mock
+    private RefreshTokenStore refreshTokenStore;
+
+    @Mock
+    private TokenRevocationStore tokenRevocationStore;
+
+    @Mock
+    private EmailBloomFilter emailBloomFilter;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private UserService userService;
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private BulkDeleteRequestDTO request(List<String> emails, List<Long> ids) {
+        BulkDeleteRequestDTO request = new BulkDeleteRequestDTO();
+        request.setEmails(emails);
+        request.setIds(ids);
+        return request;
+    }
+
+    @Test
+    void testReportsDeletedAndNotFoundInRequestOrder() {
+        when(userRepository.findQueryResultsByEmails(List.of("a@example.com", "missing@example.com")))
+                .thenReturn(List.of(new UserQueryResultDTO(1L, "a", "a@example.com")));
+        when(userRepository.findQueryResultsByIds(List.of(2L, 99L)))
+                .thenReturn(List.of(new UserQueryResultDTO(2L, "b", "b@example.com")));
+
+        List<BulkDeleteResultDTO> results = userService.bulkDeleteUsers(
+                request(List.of("a@example.com", "missing@example.com"), List.of(2L, 99L)));
+
+        assertEquals(List.of(
+                new BulkDeleteResultDTO(1L, "a@example.com", "DELETED"),
+                new BulkDeleteResultDTO(null, "missing@example.com", "NOT_FOUND"),
+                new BulkDeleteResultDTO(2L, "b@example.com", "DELETED"),
+                new BulkDeleteResultDTO(99L, null, "NOT_FOUND")), results);
+        verify(userRepository).deleteAllByIds(List.of(1L));
+        verify(userRepository).deleteAllByIds(List.of(2L));
+    }
+
+    @Test
+    void testUserListedByEmailAndIdIsReportedDeletedTwiceAndDeletedOnce() {
+        when(userRepository.findQueryResultsByEmails(List.of("a@example.com")))
+                .thenReturn(List.of(new UserQueryResultDTO(1L, "a", "a@example.com")));
+
+        List<BulkDeleteResultDTO> results = userService.bulkDeleteUsers(request(List.of("a@example.com"), List.of(1L)));
+
+        assertEquals(List.of(
+                new BulkDeleteResultDTO(1L, "a@example.com", "DELETED"),
+                new BulkDeleteResultDTO(1L, "a@example.com", "DELETED")), results);
+        verify(userRepository, never()).findQueryResultsByIds(any());
+        verify(userRepository, times(1)).deleteAllByIds(any());
+        verify(tokenRevocationStore, times(1)).revokeAllFor(1L);
+    }
+
+    @Test
+    void testCachesAndTokensChangeOnlyAfterCommit() {
+        when(userRepository.findQueryResultsByIds(List.of(1L)))
+                .thenReturn(List.of(new UserQueryResultDTO(1L, "a", "a@example.com")));
+        TransactionSynchronizationManager.initSynchronization();
+
+        userService.bulkDeleteUsers(request(List.of(), List.of(1L)));
+
+        verify(userRepository).deleteAllByIds(List.of(1L));
+        verifyNoInteractions(jwtUserDetailsService, userSearchIndex, tokenVersionRegistry,
+                refreshTokenStore, tokenRevocationStore, emailBloomFilter);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        verify(jwtUserDetailsService).evictUser("a@example.com");
+        verify(userSearchIndex).remove(1L);
+        verify(tokenVersionRegistry).evict(1L);
+        verify(refreshTokenStore).revokeAll(1L);
+        verify(tokenRevocationStore).revokeAllFor(1L);
+        verify(emailBloomFilter).recordDeletions(1);
+    }
+}
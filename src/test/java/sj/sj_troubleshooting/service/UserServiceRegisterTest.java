@@ -0,0 +1,97 @@
+package sj.sj_troubleshooting.service;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import sj.sj_troubleshooting.dto.RegisterNewUserDTO;
+import sj.sj_troubleshooting.entity.UserEntity;
+import sj.sj_troubleshooting.exception.EmailUnavailableException;
+import sj.sj_troubleshooting.repository.UserRepository;
+
+import java.sql.SQLException;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserServiceRegisterTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private EmailBloomFilter emailBloomFilter;
+
+    @Mock
+    private PasswordHashingService passwordHashingService;
+
+    @Mock
+    private JwtUserDetailsService jwtUserDetailsService;
+
+    @Mock
+    private UserSearchIndex userSearchIndex;
+
+    @Spy
+    private EmailValidator emailValidator = new EmailValidator();
+
+    @InjectMocks
+    private UserService userService;
+
+    private RegisterNewUserDTO request() {
+        RegisterNewUserDTO request = new RegisterNewUserDTO();
+        request.setUsername("new");
+        request.setEmail("new@example.com");
+        request.setPassword("password");
+        return request;
+    }
+
+    private static DataIntegrityViolationException violation(ConstraintViolationException.ConstraintKind kind) {
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("constraint violated", new SQLException(), kind, "users_email_key"));
+    }
+
+    @Test
+    void testEmailTheBloomFilterRulesOutSkipsTheLookup() {
+        when(passwordHashingService.encode("password")).thenReturn("hash");
+        when(userRepository.save(any(UserEntity.class))).thenAnswer(call -> call.getArgument(0));
+
+        UserEntity saved = userService.registerNewUser(request());
+
+        assertEquals("hash", saved.getPassword());
+        verify(userRepository, never()).findByEmail(any());
+        verify(emailBloomFilter).put("new@example.com");
+    }
+
+    @Test
+    void testPossiblyRegisteredEmailIsCheckedInTheDatabase() {
+        when(emailBloomFilter.mightContain("new@example.com")).thenReturn(true);
+        when(userRepository.findByEmail("new@example.com")).thenReturn(Optional.of(new UserEntity()));
+
+        assertThrows(EmailUnavailableException.class, () -> userService.registerNewUser(request()));
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    void testUniqueViolationOnSaveMeansEmailInUse() {
+        when(userRepository.save(any(UserEntity.class))).thenThrow(violation(ConstraintViolationException.ConstraintKind.UNIQUE));
+
+        EmailUnavailableException e = assertThrows(EmailUnavailableException.class, () -> userService.registerNewUser(request()));
+        assertEquals("Entered email is already in use.", e.getMessage());
+        verify(emailBloomFilter, never()).put(any());
+    }
+
+    @Test
+    void testOtherIntegrityViolationsAreNotReportedAsEmailInUse() {
+        DataIntegrityViolationException other = violation(ConstraintViolationException.ConstraintKind.OTHER);
+        when(userRepository.save(any(UserEntity.class))).thenThrow(other);
+
+        assertSame(other, assertThrows(DataIntegrityViolationException.class, () -> userService.registerNewUser(request())));
+    }
+}
@@ -1,9 +1,12 @@
 package sj.sj_troubleshooting.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.core.Authentication;
 import sj.sj_troubleshooting.dto.UpdateUserDTO;
@@ -11,6 +14,9 @@ import sj.sj_troubleshooting.entity.UserEntity;
 import sj.sj_troubleshooting.exception.DeniedUserInfoRequestException;
 import sj.sj_troubleshooting.exception.UserNotFoundException;
 import sj.sj_troubleshooting.repository.UserRepository;
+import sj.sj_troubleshooting.security.RefreshTokenStore;
+import sj.sj_troubleshooting.security.TokenRevocationStore;
+import sj.sj_troubleshooting.security.TokenVersionRegistry;
 
 import java.util.Optional;
 
@@ -27,6 +33,27 @@ class UserServiceUpdateTest {
     @Mock
     private Authentication authentication;
 
+    @Mock
+    private TokenVersionRegistry tokenVersionRegistry;
+
+    @Mock
+    private JwtUserDetailsService jwtUserDetailsService;
+
+    @Mock
+    private UserSearchIndex userSearchIndex;
+
+    @Mock
+    private PasswordHashingService passwordHashingService;
+
+    @Mock
+    private RefreshTokenStore refreshTokenStore;
+
+    @Mock
+    private TokenRevocationStore tokenRevocationStore;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private UserService userService;
 
@@ -54,6 +81,7 @@ class UserServiceUpdateTest {
         when(userRepository.findByEmail(userEmail)).thenReturn(Optional.of(requestingUser));
         when(userRepository.findById(userId)).thenReturn(Optional.of(existingUser));
         when(userRepository.save(any(UserEntity.class))).thenReturn(existingUser);
+        when(passwordHashingService.encode("newPassword123")).thenReturn("$2a$04$encodedPassword");
         
         // Act
         UserEntity result = userService.updateUserWithAsymmetricKeys(userId, updateDTO, authentication);
@@ -0,0 +1,68 @@
+package sj.sj_troubleshooting.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.Authentication;
+import sj.sj_troubleshooting.exception.DeniedUserInfoRequestException;
+import sj.sj_troubleshooting.repository.UserRepository;
+import sj.sj_troubleshooting.security.JwtUserDetails;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// the version behind a 304 must be guarded like the user it stands for
+@ExtendWith(MockitoExtension.class)
+class UserServiceUserVersionTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private Authentication authentication;
+
+    @InjectMocks
+    private UserService userService;
+
+    private void authenticateAs(Long id) {
+        when(authentication.getPrincipal()).thenReturn(new JwtUserDetails(id, "user" + id + "@example.com", "", List.of()));
+    }
+
+    @Test
+    void testOwnVersionIsReturned() {
+        authenticateAs(1L);
+        when(userRepository.findVersionById(1L)).thenReturn(Optional.of(5L));
+
+        assertEquals(5L, userService.getUserVersion(1L, authentication));
+    }
+
+    @Test
+    void testOtherUsersVersionIsDeniedWithoutQuery() {
+        authenticateAs(1L);
+
+        assertThrows(DeniedUserInfoRequestException.class, () -> userService.getUserVersion(2L, authentication));
+        verify(userRepository, never()).findVersionById(any());
+    }
+
+    @Test
+    void testUnknownPrincipalIsDenied() {
+        when(authentication.getPrincipal()).thenReturn("anonymousUser");
+
+        assertThrows(DeniedUserInfoRequestException.class, () -> userService.getUserVersion(1L, authentication));
+        verify(userRepository, never()).findVersionById(any());
+    }
+
+    @Test
+    void testDeletedOwnUserIsDenied() {
+        authenticateAs(1L);
+        when(userRepository.findVersionById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(DeniedUserInfoRequestException.class, () -> userService.getUserVersion(1L, authentication));
+    }
+}